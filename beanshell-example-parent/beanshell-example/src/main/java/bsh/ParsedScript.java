@@ -0,0 +1,112 @@
+package bsh;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+//the statements of a script parsed once, every run only evaluates them. Lives in the bsh package:
+//the nodes and the return control are package-private.
+//nodes keep per-evaluation state, e.g. array dimensions, so a tree must not be evaluated by two threads at a time
+public final class ParsedScript {
+  private final SimpleNode[] statements;
+  private final boolean reusable;
+
+  private ParsedScript(SimpleNode[] statements, boolean reusable) {
+    this.statements = statements;
+    this.reusable = reusable;
+  }
+
+  public static ParsedScript parse(String source, String sourceFile) throws ParseException {
+    var parser = new Parser(new StringReader(source));
+    var statements = new ArrayList<SimpleNode>();
+    try {
+      var eof = false;
+      while (!eof) {
+        eof = parser.Line();
+        var statement = parser.popNode();
+        if (statement != null) {
+          statement.setSourceFile(sourceFile);
+          statements.add(statement);
+        }
+      }
+    } catch (TokenMgrError e) {
+      throw new ParseException("Sourced file: " + sourceFile + " Token Parsing Error: " + e.getMessage());
+    } catch (ParseException e) {
+      e.setErrorSourceFile(sourceFile);
+      throw e;
+    }
+    return new ParsedScript(statements.toArray(new SimpleNode[0]), !usesDeclaredTypes(statements));
+  }
+
+  //the same loop as Interpreter.eval, without reading and parsing
+  public Object eval(Interpreter interpreter) throws EvalError {
+    var nameSpace = interpreter.getNameSpace();
+    var callStack = new CallStack(nameSpace);
+    Object value = null;
+    for (var statement : statements) {
+      try {
+        value = statement.eval(callStack, interpreter);
+      } catch (EvalError e) {
+        if (e.getNode() == null) {
+          e.setNode(statement);
+        }
+        e.reThrow("Sourced file: " + statement.getSourceFile());
+      } catch (InterpreterError e) {
+        throw new EvalError("Sourced file: " + statement.getSourceFile() + " internal Error: " + e.getMessage(),
+          statement, callStack);
+      }
+      if (value instanceof ReturnControl) {
+        value = ((ReturnControl) value).value;
+        break;
+      }
+      if (callStack.depth() > 1) {
+        callStack.clear();
+        callStack.push(nameSpace);
+      }
+    }
+    return Primitive.unwrap(value);
+  }
+
+  //type nodes cache the resolved class. A class declared by the script is generated again by every interpreter,
+  //so a tree referring to it by type is good for a single run only
+  public boolean isReusable() {
+    return reusable;
+  }
+
+  private static boolean usesDeclaredTypes(List<SimpleNode> statements) {
+    var declaredClasses = new HashSet<String>();
+    statements.forEach(statement -> collectDeclaredClasses(statement, declaredClasses));
+    return !declaredClasses.isEmpty() && statements.stream().anyMatch(statement -> refersTo(statement, declaredClasses));
+  }
+
+  private static void collectDeclaredClasses(Node node, Set<String> declaredClasses) {
+    if (node instanceof BSHClassDeclaration) {
+      declaredClasses.add(((BSHClassDeclaration) node).name);
+    }
+    for (var i = 0; i < node.jjtGetNumChildren(); i++) {
+      collectDeclaredClasses(node.jjtGetChild(i), declaredClasses);
+    }
+  }
+
+  private static boolean refersTo(Node node, Set<String> declaredClasses) {
+    if (node instanceof BSHType) {
+      var typeNode = ((BSHType) node).getTypeNode();
+      if (typeNode instanceof BSHAmbiguousName) {
+        var typeName = ((BSHAmbiguousName) typeNode).text;
+        for (var part : typeName.split("\\.")) {
+          if (declaredClasses.contains(part)) {
+            return true;
+          }
+        }
+      }
+    }
+    for (var i = 0; i < node.jjtGetNumChildren(); i++) {
+      if (refersTo(node.jjtGetChild(i), declaredClasses)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -1,77 +1,40 @@
 package org.jrx.interpreter.beanshell;
 
 import bsh.engine.BshScriptEngineFactory;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.CancellationException;
-import java.util.concurrent.CompletionException;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicBoolean;
-import javax.script.ScriptContext;
-import javax.script.ScriptEngine;
+import java.util.concurrent.Executor;
 import javax.script.ScriptException;
-import javax.script.SimpleBindings;
-import javax.script.SimpleScriptContext;
+import org.jrx.interpreter.core.EngineReuse;
+import org.jrx.interpreter.core.ExecutionScheduler;
+import org.jrx.interpreter.core.Jsr223ScriptExecutor;
+import org.jrx.interpreter.core.StopSwitch;
 
-public class BeanshellExample {
-  private static final AtomicBoolean STOP_EXECUTION_SWITCH = new AtomicBoolean();
+public class BeanshellExample extends Jsr223ScriptExecutor {
+  private static final StopSwitch STOP_EXECUTION_SWITCH = new StopSwitch();
 
-  private static final ExecutorService EXECUTOR_SERVICE = Executors.newSingleThreadExecutor();
   private static final BshScriptEngineFactory BSH_SCRIPT_ENGINE_FACTORY = new BshScriptEngineFactory();
 
-  public static void main(String[] args) throws URISyntaxException, IOException, ScriptException {
-    var scriptPath = Path.of(BeanshellExample.class.getResource("/WorkingScript.java").toURI());
-    var script = Files.readString(scriptPath, StandardCharsets.UTF_8);
-    try {
-      System.out.println("Custom output: " + new BeanshellExample().executeScript(script, "external context"));
-    } finally {
-      EXECUTOR_SERVICE.shutdownNow();
-    }
+  public BeanshellExample() {
+    this(ExecutionScheduler.shared());
   }
 
-  public String executeScript(String script, String ctxVariable) throws ScriptException {
-    try (var os = new ByteArrayOutputStream();
-         var out = new PrintWriter(os, true, StandardCharsets.UTF_8)
-    ) {
+  public BeanshellExample(Executor executor) {
+    this(executor, true);
+  }
 
-      ScriptEngine scriptEngine = BSH_SCRIPT_ENGINE_FACTORY.getScriptEngine();
-      var context = new SimpleScriptContext();
-      context.setWriter(out);
-      context.setErrorWriter(out);
-      var bindings = new SimpleBindings(new HashMap<>(Map.of("ctx", ctxVariable)));
-      context.setBindings(bindings, ScriptContext.ENGINE_SCOPE);
-      scriptEngine.setContext(context);
-      var future = EXECUTOR_SERVICE.submit(() -> {
-        try {
-          return scriptEngine.eval(script);
-        } catch (ScriptException e) {
-          throw new CompletionException(e);
-        }
-      });
-      while (!future.isDone()) {
-        if (STOP_EXECUTION_SWITCH.get()) {
-          future.cancel(true);
-          EXECUTOR_SERVICE.shutdown();
-        }
-        Thread.sleep(50);
-      }
-      Object result = future.get();
-      out.write(String.valueOf(result));
-      return os.toString(StandardCharsets.UTF_8);
-    } catch (InterruptedException e) {
-      Thread.currentThread().interrupt();
-      throw new ScriptException(e);
-    } catch (IOException | ExecutionException | CancellationException | CompletionException e) {
-      throw new ScriptException(e);
-    }
+  //without parsed script reuse the engine parses the source on every run
+  public BeanshellExample(Executor executor, boolean reuseParsedScripts) {
+    super("beanshell", BSH_SCRIPT_ENGINE_FACTORY, EngineReuse.forFactory(BSH_SCRIPT_ENGINE_FACTORY), executor,
+      STOP_EXECUTION_SWITCH, reuseParsedScripts ? (hash, source) -> BshParsedScript.parse(source) : null);
+  }
+
+  public static void main(String[] args) throws URISyntaxException, IOException, ScriptException {
+    var scriptPath = Path.of(BeanshellExample.class.getResource("/WorkingScript.java").toURI());
+    var script = Files.readString(scriptPath, StandardCharsets.UTF_8);
+    System.out.println("Custom output: " + new BeanshellExample().executeScript(script, "external context"));
   }
 }
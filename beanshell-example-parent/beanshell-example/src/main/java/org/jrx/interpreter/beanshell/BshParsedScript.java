@@ -0,0 +1,108 @@
+package org.jrx.interpreter.beanshell;
+
+import bsh.EvalError;
+import bsh.Interpreter;
+import bsh.ParseException;
+import bsh.ParsedScript;
+import bsh.TargetError;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+//a script parsed once and evaluated by a fresh interpreter per run, no engine instance owns it.
+//a tree is evaluated by one run at a time, concurrent runs take an idle tree or parse another one
+final class BshParsedScript extends CompiledScript {
+  private static final int MAX_IDLE_TREES = Runtime.getRuntime().availableProcessors();
+  private static final String SOURCE_FILE = "parsed script";
+
+  private final String source;
+  private final BlockingQueue<ParsedScript> idleTrees = new LinkedBlockingQueue<>(MAX_IDLE_TREES);
+
+  private BshParsedScript(String source) {
+    this.source = source;
+  }
+
+  static BshParsedScript parse(String source) throws ScriptException {
+    var script = new BshParsedScript(source);
+    //syntax errors fail the preparation, not the first run
+    script.release(script.parseTree());
+    return script;
+  }
+
+  @Override
+  public Object eval(ScriptContext context) throws ScriptException {
+    var tree = idleTrees.poll();
+    if (tree == null) {
+      tree = parseTree();
+    }
+    var interpreter = new Interpreter(new StringReader(""), printStream(context.getWriter()),
+      printStream(context.getErrorWriter()), false);
+    try {
+      for (var binding : context.getBindings(ScriptContext.ENGINE_SCOPE).entrySet()) {
+        interpreter.set(binding.getKey(), binding.getValue());
+      }
+      var value = tree.eval(interpreter);
+      release(tree);
+      return value;
+    } catch (TargetError e) {
+      var scriptException = new ScriptException(e.toString(), e.getErrorSourceFile(), e.getErrorLineNumber());
+      scriptException.initCause(e.getTarget());
+      throw scriptException;
+    } catch (EvalError e) {
+      throw new ScriptException(e.toString(), e.getErrorSourceFile(), e.getErrorLineNumber());
+    }
+  }
+
+  //not bound to an engine instance
+  @Override
+  public ScriptEngine getEngine() {
+    return null;
+  }
+
+  int idleTrees() {
+    return idleTrees.size();
+  }
+
+  private ParsedScript parseTree() throws ScriptException {
+    try {
+      return ParsedScript.parse(source, SOURCE_FILE);
+    } catch (ParseException e) {
+      throw new ScriptException(e.getMessage(), e.getErrorSourceFile(), e.getErrorLineNumber());
+    }
+  }
+
+  private void release(ParsedScript tree) {
+    if (tree.isReusable()) {
+      idleTrees.offer(tree);
+    }
+  }
+
+  //print streams encode whole strings, so every chunk they write decodes on its own
+  private static PrintStream printStream(Writer writer) {
+    return new PrintStream(new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        writer.write(b);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        writer.write(new String(b, off, len, StandardCharsets.UTF_8));
+      }
+
+      @Override
+      public void flush() throws IOException {
+        writer.flush();
+      }
+    }, true, StandardCharsets.UTF_8);
+  }
+}
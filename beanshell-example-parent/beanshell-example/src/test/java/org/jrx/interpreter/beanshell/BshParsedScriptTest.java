@@ -0,0 +1,96 @@
+package org.jrx.interpreter.beanshell;
+
+import javax.script.CompiledScript;
+import javax.script.ScriptException;
+import org.jrx.interpreter.core.ExecutionScheduler;
+import org.jrx.interpreter.core.PreparedScript;
+import org.jrx.interpreter.core.ScriptBindings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+//a reused tree is evaluated by a new interpreter every run, nothing the nodes cache may carry a run over to the next
+class BshParsedScriptTest {
+  private final ExecutionScheduler scheduler = new ExecutionScheduler(1);
+  private final BeanshellExample example = new BeanshellExample(scheduler);
+
+  @AfterEach
+  void close() {
+    example.close();
+    scheduler.close();
+  }
+
+  @Test
+  void reusedTreeSeesTheCtxOfItsRun() throws ScriptException {
+    var prepared = example.prepare("ctx + \"!\";");
+
+    assertEquals("first!", run(prepared, "first"));
+    assertEquals("second!", run(prepared, "second"));
+    assertEquals(1, tree(prepared).idleTrees());
+  }
+
+  @Test
+  void variablesOfARunAreInvisibleToTheNext() throws ScriptException {
+    var prepared = example.prepare("previous = (seen == void) ? \"none\" : seen; seen = ctx; previous;");
+
+    assertEquals("none", run(prepared, "first"));
+    assertEquals("none", run(prepared, "second"));
+    assertEquals(1, tree(prepared).idleTrees());
+  }
+
+  @Test
+  void declaredMethodsSeeTheCtxOfTheirRun() throws ScriptException {
+    var prepared = example.prepare("int twice(int x) { return x * 2; }\n"
+      + "String greet() { return \"hi \" + ctx; }\n"
+      + "greet() + \" \" + twice(ctx.length());");
+
+    assertEquals("hi ab 4", run(prepared, "ab"));
+    assertEquals("hi abc 6", run(prepared, "abc"));
+    assertEquals(1, tree(prepared).idleTrees());
+  }
+
+  //an allocation does not name the class by type, the tree is reused and must create instances of the run's class
+  @Test
+  void declaredClassIsTheOneOfTheRun() throws ScriptException {
+    var prepared = example.prepare("class Counter { static int created = 0; Counter() { created++; } }\n"
+      + "for (i = 0; i < ctx.length(); i++) { new Counter(); }\n"
+      + "ctx + \" \" + Counter.created;");
+
+    assertEquals("ab 2", run(prepared, "ab"));
+    assertEquals("abc 3", run(prepared, "abc"));
+    assertEquals(1, tree(prepared).idleTrees());
+  }
+
+  @Test
+  void treeUsingADeclaredClassAsATypeIsNotReused() throws ScriptException {
+    var prepared = example.prepare("class Box { String value; Box(String v) { value = v; } }\n"
+      + "Box box = new Box(ctx);\n"
+      + "box.value;");
+
+    assertEquals("first", run(prepared, "first"));
+    assertEquals("second", run(prepared, "second"));
+    assertEquals(0, tree(prepared).idleTrees());
+  }
+
+  @Test
+  void failedRunDoesNotSpoilTheNext() throws ScriptException {
+    var prepared = example.prepare("int[] values = new int[ctx.length()];\n"
+      + "for (i = 0; i < values.length; i++) { values[i] = i; }\n"
+      + "if (ctx.equals(\"fail\")) { throw new IllegalStateException(ctx); }\n"
+      + "ctx + \" \" + values.length;");
+
+    assertEquals("ok 2", run(prepared, "ok"));
+    assertThrows(ScriptException.class, () -> run(prepared, "fail"));
+    assertEquals("again 5", run(prepared, "again"));
+    assertEquals(1, tree(prepared).idleTrees());
+  }
+
+  private String run(PreparedScript prepared, String ctx) throws ScriptException {
+    return String.valueOf(example.execute(prepared, ScriptBindings.of("ctx", ctx)).await().getValue());
+  }
+
+  private BshParsedScript tree(PreparedScript prepared) {
+    return (BshParsedScript) prepared.getCompiled(example.getEngineName(), CompiledScript.class);
+  }
+}
@@ -0,0 +1,101 @@
+package org.jrx.interpreter.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import javax.script.ScriptException;
+import org.jrx.interpreter.beanshell.BeanshellExample;
+import org.jrx.interpreter.core.AdaptiveScriptExecutor;
+import org.jrx.interpreter.core.ExecutionScheduler;
+import org.jrx.interpreter.core.PreparedScript;
+import org.jrx.interpreter.core.ScriptBindings;
+import org.jrx.interpreter.core.ScriptExecutor;
+import org.jrx.interpreter.core.ScriptResult;
+import org.jrx.interpreter.groovy.GroovyNativeApiExample;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+//one script source for BeanShell, Groovy and the router starting on BeanShell and promoting hot scripts to Groovy:
+//the same script run again and again, and a distinct source on every run that is never hot enough to promote
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class AdaptiveRoutingBenchmark {
+  private static final int GROOVY_CACHE_SIZE = 256;
+
+  @Param
+  public Routing routing;
+
+  @Param({"HELLO", "CPU"})
+  public Workload workload;
+
+  private ScriptExecutor executor;
+  private String source;
+  private PreparedScript script;
+  private long runs;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, ScriptException {
+    try (var input = AdaptiveRoutingBenchmark.class.getResourceAsStream(
+      "/scripts/adaptive/" + workload.getScriptName() + ".java")) {
+      source = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    executor = routing.createExecutor(ExecutionScheduler.shared());
+    script = executor.prepare(source);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    System.out.println(routing + " " + workload + " gauges: " + executor.getMetrics().getGauges());
+    executor.close();
+  }
+
+  @Benchmark
+  public ScriptResult sameScript() throws ScriptException {
+    return executor.execute(script, ScriptBindings.of("ctx", EngineState.CTX)).await();
+  }
+
+  @Benchmark
+  public ScriptResult newScript() throws ScriptException {
+    //a leading comment is valid in both engines and makes each source distinct
+    return executor.execute("// run " + runs++ + "\n" + source, ScriptBindings.of("ctx", EngineState.CTX));
+  }
+
+  public enum Routing {
+    BEANSHELL {
+      @Override
+      ScriptExecutor createExecutor(Executor executor) {
+        return new BeanshellExample(executor);
+      }
+    },
+    GROOVY_NATIVE {
+      @Override
+      ScriptExecutor createExecutor(Executor executor) {
+        return new GroovyNativeApiExample(GROOVY_CACHE_SIZE, executor);
+      }
+    },
+    ADAPTIVE {
+      @Override
+      ScriptExecutor createExecutor(Executor executor) {
+        return new AdaptiveScriptExecutor(BEANSHELL.createExecutor(executor), GROOVY_NATIVE.createExecutor(executor));
+      }
+    };
+
+    abstract ScriptExecutor createExecutor(Executor executor);
+  }
+}
@@ -0,0 +1,63 @@
+package org.jrx.interpreter.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.script.ScriptException;
+import org.jrx.interpreter.beanshell.BeanshellExample;
+import org.jrx.interpreter.core.ExecutionScheduler;
+import org.jrx.interpreter.core.PreparedScript;
+import org.jrx.interpreter.core.ScriptBindings;
+import org.jrx.interpreter.core.ScriptResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+//repeated runs of one prepared BeanShell script: the engine parsing the source every time vs the cached parsed tree
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class BeanshellParsedScriptBenchmark {
+  @Param({"false", "true"})
+  public boolean reuseParsedScripts;
+
+  @Param
+  public Workload workload;
+
+  private BeanshellExample example;
+  private PreparedScript script;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, ScriptException {
+    String source;
+    try (var input = BeanshellParsedScriptBenchmark.class.getResourceAsStream(
+      "/scripts/beanshell/" + workload.getScriptName() + ".java")) {
+      source = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    example = new BeanshellExample(ExecutionScheduler.shared(), reuseParsedScripts);
+    script = example.prepare(source);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    example.close();
+  }
+
+  @Benchmark
+  public ScriptResult execute() throws ScriptException {
+    return example.execute(script, ScriptBindings.of("ctx", EngineState.CTX)).await();
+  }
+}
@@ -0,0 +1,52 @@
+package org.jrx.interpreter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import javax.script.ScriptException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+//every fork is a fresh JVM and measures exactly one first execution of a fresh engine
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1, batchSize = 1)
+@Fork(10)
+@State(Scope.Benchmark)
+public class ColdExecutionBenchmark {
+
+  @Param
+  public Engine engine;
+
+  @Param
+  public Workload workload;
+
+  private EngineRunner runner;
+  private String script;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    script = engine.loadScript(workload);
+    runner = engine.createRunner();
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    runner.close();
+  }
+
+  @Benchmark
+  public String firstExecution() throws ScriptException {
+    return runner.executeScript(script, EngineState.CTX);
+  }
+}
@@ -0,0 +1,73 @@
+package org.jrx.interpreter.benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import javax.script.ScriptException;
+import org.jrx.interpreter.core.DaemonThreadFactory;
+import org.jrx.interpreter.core.ExecutionScheduler;
+import org.jrx.interpreter.core.PreparedScript;
+import org.jrx.interpreter.core.ScriptBindings;
+import org.jrx.interpreter.core.ScriptExecution;
+import org.jrx.interpreter.core.ScriptExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+//throughput of the same cpu-bound script per worker count, should scale near-linearly up to the core count
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentExecutionBenchmark {
+  private static final int BATCH_SIZE = 32;
+
+  @Param
+  public Engine engine;
+
+  @Param({"1", "2", "4", "8"})
+  public int parallelism;
+
+  private ExecutionScheduler scheduler;
+  private ScriptExecutor executor;
+  private PreparedScript script;
+
+  @Setup(Level.Trial)
+  public void setUp() throws ScriptException {
+    scheduler = new ExecutionScheduler(parallelism, BATCH_SIZE, new DaemonThreadFactory("benchmark"));
+    executor = engine.createExecutor(scheduler);
+    script = executor.prepare(engine.loadScript(Workload.CPU));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    executor.close();
+    scheduler.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public Object batch() throws ScriptException {
+    var executions = new ArrayList<ScriptExecution>(BATCH_SIZE);
+    for (var i = 0; i < BATCH_SIZE; i++) {
+      executions.add(executor.execute(script, ScriptBindings.of("ctx", EngineState.CTX)));
+    }
+    Object last = null;
+    for (var execution : executions) {
+      last = execution.await();
+    }
+    return last;
+  }
+}
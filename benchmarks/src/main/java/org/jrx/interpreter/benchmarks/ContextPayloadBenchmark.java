@@ -0,0 +1,97 @@
+package org.jrx.interpreter.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.script.ScriptException;
+import org.jrx.interpreter.core.ExecutionScheduler;
+import org.jrx.interpreter.core.PreparedScript;
+import org.jrx.interpreter.core.ScriptBindings;
+import org.jrx.interpreter.core.ScriptExecutor;
+import org.jrx.interpreter.core.ScriptResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+//a binary payload of 1MB handed to a prepared script: as a base64 ctx string the script decodes,
+//or as a read-only view of the caller's buffer. The payload changes before every run
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class ContextPayloadBenchmark {
+  private static final int PAYLOAD_BYTES = 1024 * 1024;
+
+  @Param
+  public Engine engine;
+
+  @Param
+  public PayloadPath payloadPath;
+
+  private ScriptExecutor executor;
+  private PreparedScript script;
+  private byte[] payload;
+  private ByteBuffer payloadBuffer;
+  private int runs;
+
+  @Setup(Level.Trial)
+  public void setUp() throws ScriptException {
+    payload = new byte[PAYLOAD_BYTES];
+    new Random(PAYLOAD_BYTES).nextBytes(payload);
+    payloadBuffer = ByteBuffer.wrap(payload);
+    executor = engine.createExecutor(ExecutionScheduler.shared());
+    script = executor.prepare(engine.loadScript(payloadPath.getScriptName()));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    executor.close();
+  }
+
+  @Benchmark
+  public ScriptResult execute() throws ScriptException {
+    payload[PAYLOAD_BYTES - 1] = (byte) runs++;
+    return executor.execute(script, payloadPath.bindings(payload, payloadBuffer)).await();
+  }
+
+  public enum PayloadPath {
+    STRING("payload-text") {
+      @Override
+      ScriptBindings bindings(byte[] payload, ByteBuffer payloadBuffer) {
+        return ScriptBindings.of("ctx", Base64.getEncoder().encodeToString(payload));
+      }
+    },
+    REFERENCE("payload-buffer") {
+      @Override
+      ScriptBindings bindings(byte[] payload, ByteBuffer payloadBuffer) {
+        //kotlin scripts declare a ctx property, it must be bound
+        return ScriptBindings.of("ctx", EngineState.CTX).withBuffer("payload", payloadBuffer);
+      }
+    };
+
+    private final String scriptName;
+
+    PayloadPath(String scriptName) {
+      this.scriptName = scriptName;
+    }
+
+    public String getScriptName() {
+      return scriptName;
+    }
+
+    abstract ScriptBindings bindings(byte[] payload, ByteBuffer payloadBuffer);
+  }
+}
@@ -0,0 +1,114 @@
+package org.jrx.interpreter.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import javax.script.ScriptException;
+import org.jrx.interpreter.core.ExecutionScheduler;
+import org.jrx.interpreter.core.ScriptExecutor;
+import org.jrx.interpreter.beanshell.BeanshellExample;
+import org.jrx.interpreter.groovy.GroovyNativeApiExample;
+import org.jrx.interpreter.groovy.GroovyScriptApiExample;
+import org.jrx.interpreter.jshell.JShellExample;
+import org.jrx.interpreter.kotlin.KotlinInterpreterExample;
+
+public enum Engine {
+  JSHELL("jshell", "java") {
+    @Override
+    public EngineRunner createRunner() {
+      var example = new JShellExample();
+      return new EngineRunner() {
+        @Override
+        public String executeScript(String script, String ctxVariable) throws ScriptException {
+          return example.executeScript(script, ctxVariable);
+        }
+
+        @Override
+        public void close() {
+          example.close();
+        }
+      };
+    }
+
+    @Override
+    public ScriptExecutor createExecutor(ExecutionScheduler scheduler) {
+      //a warm shell for every worker
+      return new JShellExample(scheduler.parallelism(), JSHELL_MAX_USES_PER_SHELL, scheduler);
+    }
+  },
+  BEANSHELL("beanshell", "java") {
+    @Override
+    public EngineRunner createRunner() {
+      return new BeanshellExample()::executeScript;
+    }
+
+    @Override
+    public ScriptExecutor createExecutor(ExecutionScheduler scheduler) {
+      return new BeanshellExample(scheduler);
+    }
+  },
+  KOTLIN("kotlin", "kts") {
+    @Override
+    public EngineRunner createRunner() {
+      return new KotlinInterpreterExample()::executeScript;
+    }
+
+    @Override
+    public ScriptExecutor createExecutor(ExecutionScheduler scheduler) {
+      return new KotlinInterpreterExample(scheduler);
+    }
+  },
+  GROOVY_SCRIPT_API("groovy", "groovy") {
+    @Override
+    public EngineRunner createRunner() {
+      return new GroovyScriptApiExample()::executeScript;
+    }
+
+    @Override
+    public ScriptExecutor createExecutor(ExecutionScheduler scheduler) {
+      return new GroovyScriptApiExample(scheduler);
+    }
+  },
+  GROOVY_NATIVE_API("groovy", "groovy") {
+    @Override
+    public EngineRunner createRunner() {
+      return new GroovyNativeApiExample()::executeScript;
+    }
+
+    @Override
+    public ScriptExecutor createExecutor(ExecutionScheduler scheduler) {
+      return new GroovyNativeApiExample(GROOVY_CACHE_SIZE, scheduler);
+    }
+  };
+
+  private static final int JSHELL_MAX_USES_PER_SHELL = 100;
+  private static final int GROOVY_CACHE_SIZE = 256;
+
+  private final String scriptDirectory;
+  private final String scriptExtension;
+
+  Engine(String scriptDirectory, String scriptExtension) {
+    this.scriptDirectory = scriptDirectory;
+    this.scriptExtension = scriptExtension;
+  }
+
+  public abstract EngineRunner createRunner();
+
+  public abstract ScriptExecutor createExecutor(ExecutionScheduler scheduler);
+
+  public String loadScript(Workload workload) {
+    return loadScript(workload.getScriptName());
+  }
+
+  public String loadScript(String scriptName) {
+    var resource = "/scripts/" + scriptDirectory + "/" + scriptName + "." + scriptExtension;
+    try (var input = Engine.class.getResourceAsStream(resource)) {
+      if (input == null) {
+        throw new IllegalArgumentException("No script " + resource + " for " + this);
+      }
+      return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,12 @@
+package org.jrx.interpreter.benchmarks;
+
+import javax.script.ScriptException;
+
+public interface EngineRunner extends AutoCloseable {
+
+  String executeScript(String script, String ctxVariable) throws ScriptException;
+
+  @Override
+  default void close() {
+  }
+}
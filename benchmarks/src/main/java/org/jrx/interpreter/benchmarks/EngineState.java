@@ -0,0 +1,33 @@
+package org.jrx.interpreter.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+@State(Scope.Benchmark)
+public class EngineState {
+  public static final String CTX = "benchmark context";
+
+  @Param
+  public Engine engine;
+
+  @Param
+  public Workload workload;
+
+  public EngineRunner runner;
+  public String script;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    script = engine.loadScript(workload);
+    runner = engine.createRunner();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    runner.close();
+  }
+}
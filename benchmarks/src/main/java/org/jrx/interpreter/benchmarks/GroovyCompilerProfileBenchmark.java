@@ -0,0 +1,68 @@
+package org.jrx.interpreter.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.script.ScriptException;
+import org.jrx.interpreter.core.ExecutionScheduler;
+import org.jrx.interpreter.core.PreparedScript;
+import org.jrx.interpreter.groovy.CompilerProfile;
+import org.jrx.interpreter.groovy.GroovyNativeApiExample;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+//compile and execution time per GroovyNativeApiExample compiler profile, working is a copy of the bundled WorkingScript
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class GroovyCompilerProfileBenchmark {
+  private static final int CACHE_SIZE = 16;
+
+  @Param
+  public CompilerProfile profile;
+
+  @Param({"working", "cpu"})
+  public String scriptName;
+
+  private GroovyNativeApiExample example;
+  private String script;
+  private long runCounter;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    try (var input = GroovyCompilerProfileBenchmark.class.getResourceAsStream("/scripts/groovy/" + scriptName + ".groovy")) {
+      script = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    example = new GroovyNativeApiExample(CACHE_SIZE, ExecutionScheduler.shared(), profile);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    example.close();
+  }
+
+  @Benchmark
+  public PreparedScript compile() throws ScriptException {
+    //a distinct source is a cache miss every time
+    return example.prepare("// run " + runCounter++ + "\n" + script);
+  }
+
+  @Benchmark
+  public String execute() throws ScriptException {
+    return example.executeScript(script, EngineState.CTX);
+  }
+}
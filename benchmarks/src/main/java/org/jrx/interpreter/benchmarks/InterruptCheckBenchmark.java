@@ -0,0 +1,106 @@
+package org.jrx.interpreter.benchmarks;
+
+import groovy.lang.Binding;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.Script;
+import groovy.transform.CompileStatic;
+import groovy.transform.ConditionalInterrupt;
+import groovy.transform.ThreadInterrupt;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.codehaus.groovy.ast.tools.GeneralUtils;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.jrx.interpreter.groovy.InterruptCheckTransformation;
+import org.jrx.interpreter.groovy.InterruptToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+//groovy loop iterations per microsecond with each way to make a script interruptible
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class InterruptCheckBenchmark {
+  private static final int ITERATIONS = 100_000;
+  private static final String STOP_SWITCH_NAME = "stopSwitch";
+  private static final String SCRIPT = "long acc = 0\n"
+    + "for (int i = 0; i < " + ITERATIONS + "; i++) {\n"
+    + "  acc += (long) i * i % 7\n"
+    + "}\n"
+    + "acc\n";
+
+  public enum Check {
+    NONE,
+    //the global switch check GroovyNativeApiExample used to inject
+    CONDITIONAL_INTERRUPT,
+    THREAD_INTERRUPT,
+    INTERRUPT_TOKEN
+  }
+
+  @Param
+  public Check check;
+
+  @Param({"false", "true"})
+  public boolean staticCompilation;
+
+  private Class<? extends Script> scriptClass;
+  private InterruptToken interruptToken;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    var compilerConfig = new CompilerConfiguration();
+    switch (check) {
+      case CONDITIONAL_INTERRUPT:
+        var condition = GeneralUtils.closureX(GeneralUtils.returnS(GeneralUtils.callX(GeneralUtils.varX(STOP_SWITCH_NAME), "get")));
+        compilerConfig.addCompilationCustomizers(new ASTTransformationCustomizer(Map.of(
+          "value", condition,
+          "thrown", RuntimeException.class
+        ), ConditionalInterrupt.class));
+        break;
+      case THREAD_INTERRUPT:
+        compilerConfig.addCompilationCustomizers(new ASTTransformationCustomizer(ThreadInterrupt.class));
+        break;
+      case INTERRUPT_TOKEN:
+        compilerConfig.addCompilationCustomizers(new ASTTransformationCustomizer(new InterruptCheckTransformation()));
+        break;
+      default:
+        break;
+    }
+    if (staticCompilation) {
+      compilerConfig.addCompilationCustomizers(new ASTTransformationCustomizer(CompileStatic.class));
+    }
+    var classLoader = new GroovyClassLoader(InterruptCheckBenchmark.class.getClassLoader(), compilerConfig);
+    scriptClass = classLoader.parseClass(SCRIPT, "InterruptCheck_" + check + ".groovy").asSubclass(Script.class);
+    interruptToken = InterruptToken.bind();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    interruptToken.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ITERATIONS)
+  public Object loop() {
+    var binding = new Binding();
+    binding.setProperty(STOP_SWITCH_NAME, new AtomicBoolean());
+    return InvokerHelper.createScript(scriptClass, binding).run();
+  }
+}
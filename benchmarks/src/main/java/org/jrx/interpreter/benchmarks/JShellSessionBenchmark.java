@@ -0,0 +1,74 @@
+package org.jrx.interpreter.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.script.ScriptException;
+import org.jrx.interpreter.core.ExecutionScheduler;
+import org.jrx.interpreter.core.PreparedScript;
+import org.jrx.interpreter.core.ScriptBindings;
+import org.jrx.interpreter.core.ScriptResult;
+import org.jrx.interpreter.jshell.JShellExample;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+//repeated runs of one JShell script with a new ctx every time: a fresh shell per run, a pooled shell reset after
+//every run, a session keeping the declarations so that a run evaluates only the main call
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class JShellSessionBenchmark {
+  private static final int MAX_USES = 1_000_000;
+
+  @Param
+  public ShellMode shellMode;
+
+  @Param
+  public Workload workload;
+
+  private JShellExample example;
+  private PreparedScript script;
+  private long runs;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, ScriptException {
+    String source;
+    try (var input = JShellSessionBenchmark.class.getResourceAsStream(
+      "/scripts/jshell/" + workload.getScriptName() + ".java")) {
+      source = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    example = new JShellExample(1, shellMode == ShellMode.FRESH_SHELL ? 1 : MAX_USES, ExecutionScheduler.shared(), null,
+      shellMode == ShellMode.SESSION);
+    script = example.prepare(source);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    example.close();
+  }
+
+  @Benchmark
+  public ScriptResult execute() throws ScriptException {
+    return example.execute(script, ScriptBindings.of("ctx", EngineState.CTX + " " + runs++)).await();
+  }
+
+  public enum ShellMode {
+    FRESH_SHELL,
+    POOLED_SHELL,
+    SESSION
+  }
+}
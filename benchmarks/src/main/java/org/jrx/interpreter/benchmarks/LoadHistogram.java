@@ -0,0 +1,107 @@
+package org.jrx.interpreter.benchmarks;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+//log-linear buckets in the manner of HdrHistogram: every power of two is split into 64 buckets, so a percentile is
+//accurate within 1.6% where LatencyHistogram of the executors is accurate within 2x. Values below 128 are exact
+public final class LoadHistogram {
+  private static final int SUB_BUCKET_BITS = 6;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder total = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(long value) {
+    var recorded = Math.max(value, 0);
+    buckets.incrementAndGet(index(recorded));
+    count.increment();
+    total.add(recorded);
+    if (recorded > max.get()) {
+      max.accumulateAndGet(recorded, Math::max);
+    }
+  }
+
+  //a run that took several expected intervals has held back the runs that were due meanwhile, they are recorded as
+  //well with the latencies they would have seen, the same as recordValueWithExpectedInterval of HdrHistogram
+  public void record(long value, long expectedInterval) {
+    record(value);
+    if (expectedInterval <= 0) {
+      return;
+    }
+    for (var missed = value - expectedInterval; missed >= expectedInterval; missed -= expectedInterval) {
+      record(missed);
+    }
+  }
+
+  public long count() {
+    return count.sum();
+  }
+
+  public long max() {
+    return max.get();
+  }
+
+  public double mean() {
+    var count = count();
+    return count == 0 ? 0 : (double) total.sum() / count;
+  }
+
+  //the highest value of the bucket holding the percentile, capped by the max
+  public long percentile(double percentile) {
+    var counts = new long[BUCKETS];
+    var total = 0L;
+    for (var i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+      total += counts[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    var rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+    var seen = 0L;
+    for (var i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(highestValue(i), max());
+      }
+    }
+    return max();
+  }
+
+  public void reset() {
+    for (var i = 0; i < BUCKETS; i++) {
+      buckets.set(i, 0);
+    }
+    count.reset();
+    total.reset();
+    max.set(0);
+  }
+
+  private static int index(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    var shift = Long.SIZE - SUB_BUCKET_BITS - 1 - Long.numberOfLeadingZeros(value);
+    return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+  }
+
+  private static long highestValue(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    var shift = index / SUB_BUCKETS - 1;
+    var lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+  @Override
+  public String toString() {
+    return "LoadHistogram{count=" + count() + ", mean=" + (long) mean() + ", p50=" + percentile(50) + ", p99="
+      + percentile(99) + ", max=" + max() + '}';
+  }
+}
@@ -0,0 +1,213 @@
+package org.jrx.interpreter.benchmarks;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import org.jrx.interpreter.core.DaemonThreadFactory;
+
+//the load over time: every sample interval takes the runs completed since the previous sample, the gc pauses and
+//the memory of the process. Pauses come from the gc notifications, one per collection with its duration
+public final class LoadMonitor implements NotificationListener, AutoCloseable {
+  private static final Path PROC_STATUS = Path.of("/proc/self/status");
+  private static final long MILLIS_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final Duration sampleInterval;
+  private final ScheduledExecutorService sampler;
+  private final AtomicReference<LoadHistogram> intervalLatency = new AtomicReference<>(new LoadHistogram());
+  private final LongAdder intervalErrors = new LongAdder();
+  private final LoadHistogram gcPauses = new LoadHistogram();
+  private final LongAdder intervalGcPauses = new LongAdder();
+  private final LongAdder intervalGcPauseNanos = new LongAdder();
+  private final List<Sample> timeline = new ArrayList<>();
+  private long startedNanos;
+  private long maxRssBytes = -1;
+
+  public LoadMonitor(Duration sampleInterval) {
+    this.sampleInterval = sampleInterval;
+    this.sampler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("load-monitor"));
+  }
+
+  public synchronized void start() {
+    startedNanos = System.nanoTime();
+    for (var collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      if (collector instanceof NotificationEmitter) {
+        ((NotificationEmitter) collector).addNotificationListener(this, null, null);
+      }
+    }
+    var intervalNanos = sampleInterval.toNanos();
+    sampler.scheduleAtFixedRate(this::sample, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+  }
+
+  //the latency of every completed run, failed ones included
+  public void record(long latencyNanos, boolean failed) {
+    intervalLatency.get().record(latencyNanos);
+    if (failed) {
+      intervalErrors.increment();
+    }
+  }
+
+  @Override
+  public void handleNotification(Notification notification, Object handback) {
+    if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+      return;
+    }
+    var info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+    var pauseNanos = info.getGcInfo().getDuration() * MILLIS_NANOS;
+    gcPauses.record(pauseNanos);
+    intervalGcPauses.increment();
+    intervalGcPauseNanos.add(pauseNanos);
+  }
+
+  public LoadHistogram getGcPauses() {
+    return gcPauses;
+  }
+
+  public synchronized long getMaxRssBytes() {
+    return maxRssBytes;
+  }
+
+  public synchronized List<Sample> getTimeline() {
+    return List.copyOf(timeline);
+  }
+
+  //takes the last, partial interval as well
+  @Override
+  public void close() {
+    sampler.shutdownNow();
+    try {
+      sampler.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    for (var collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      removeListener(collector);
+    }
+    sample();
+  }
+
+  private void removeListener(GarbageCollectorMXBean collector) {
+    if (collector instanceof NotificationEmitter) {
+      try {
+        ((NotificationEmitter) collector).removeNotificationListener(this);
+      } catch (ListenerNotFoundException e) {
+        //not started
+      }
+    }
+  }
+
+  private synchronized void sample() {
+    //a run recorded into the previous histogram after the swap is missing from the timeline, not from the totals
+    var latency = intervalLatency.getAndSet(new LoadHistogram());
+    var rssBytes = rssBytes();
+    maxRssBytes = Math.max(maxRssBytes, rssBytes);
+    timeline.add(new Sample(
+      System.nanoTime() - startedNanos,
+      latency.count(),
+      intervalErrors.sumThenReset(),
+      latency.percentile(50),
+      latency.percentile(99),
+      latency.max(),
+      intervalGcPauses.sumThenReset(),
+      intervalGcPauseNanos.sumThenReset(),
+      ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(),
+      rssBytes
+    ));
+  }
+
+  //-1 where there is no procfs
+  private static long rssBytes() {
+    try {
+      for (var line : Files.readAllLines(PROC_STATUS)) {
+        if (line.startsWith("VmRSS:")) {
+          return Long.parseLong(line.substring("VmRSS:".length()).replace("kB", "").trim()) * 1024;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      //not linux
+    }
+    return -1;
+  }
+
+  public static final class Sample {
+    private final long elapsedNanos;
+    private final long completed;
+    private final long errors;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long maxNanos;
+    private final long gcPauses;
+    private final long gcPauseNanos;
+    private final long heapUsedBytes;
+    private final long rssBytes;
+
+    private Sample(long elapsedNanos, long completed, long errors, long p50Nanos, long p99Nanos, long maxNanos,
+                   long gcPauses, long gcPauseNanos, long heapUsedBytes, long rssBytes) {
+      this.elapsedNanos = elapsedNanos;
+      this.completed = completed;
+      this.errors = errors;
+      this.p50Nanos = p50Nanos;
+      this.p99Nanos = p99Nanos;
+      this.maxNanos = maxNanos;
+      this.gcPauses = gcPauses;
+      this.gcPauseNanos = gcPauseNanos;
+      this.heapUsedBytes = heapUsedBytes;
+      this.rssBytes = rssBytes;
+    }
+
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    public long getCompleted() {
+      return completed;
+    }
+
+    public long getErrors() {
+      return errors;
+    }
+
+    public long getP50Nanos() {
+      return p50Nanos;
+    }
+
+    public long getP99Nanos() {
+      return p99Nanos;
+    }
+
+    public long getMaxNanos() {
+      return maxNanos;
+    }
+
+    public long getGcPauses() {
+      return gcPauses;
+    }
+
+    public long getGcPauseNanos() {
+      return gcPauseNanos;
+    }
+
+    public long getHeapUsedBytes() {
+      return heapUsedBytes;
+    }
+
+    public long getRssBytes() {
+      return rssBytes;
+    }
+  }
+}
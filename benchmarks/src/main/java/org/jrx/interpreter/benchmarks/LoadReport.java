@@ -0,0 +1,184 @@
+package org.jrx.interpreter.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+//the json of a load test, latencies in microseconds. The configuration and the jvm come first, so that two reports
+//can be told apart before their numbers are compared
+public final class LoadReport {
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+  private static final double NANOS_PER_MICRO = TimeUnit.MICROSECONDS.toNanos(1);
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+  private static final double BYTES_PER_MB = 1024 * 1024;
+
+  private final LoadTest loadTest;
+
+  public LoadReport(LoadTest loadTest) {
+    this.loadTest = loadTest;
+  }
+
+  public String toJson() {
+    var options = loadTest.getOptions();
+    var monitor = loadTest.getMonitor();
+    var json = new StringBuilder(4096).append("{\n");
+    field(json, 1, "build", options.getBuild());
+    field(json, 1, "engine", options.getEngine().name());
+    field(json, 1, "corpus", options.getCorpus());
+    field(json, 1, "mode", options.isOpenLoop() ? "open-loop" : "closed-loop");
+    field(json, 1, "rate", options.getRate());
+    field(json, 1, "concurrency", options.isOpenLoop() ? 0 : options.getConcurrency());
+    field(json, 1, "expectedIntervalUs", micros(options.isOpenLoop() ? 0 : options.getExpectedInterval().toNanos()));
+    field(json, 1, "parallelism", options.getParallelism());
+    field(json, 1, "seed", options.getSeed());
+    field(json, 1, "warmupSeconds", options.getWarmup().toMillis() / 1000d);
+    field(json, 1, "durationSeconds", options.getDuration().toMillis() / 1000d);
+    field(json, 1, "jvm", System.getProperty("java.vm.name") + " " + System.getProperty("java.runtime.version"));
+    field(json, 1, "jvmArguments", String.join(" ", ManagementFactory.getRuntimeMXBean().getInputArguments()));
+    field(json, 1, "cores", Runtime.getRuntime().availableProcessors());
+    field(json, 1, "measuredSeconds", loadTest.getMeasuredNanos() / NANOS_PER_SECOND);
+    field(json, 1, "runs", loadTest.getCompleted() + loadTest.getErrors());
+    field(json, 1, "errors", loadTest.getErrors());
+    field(json, 1, "incomplete", loadTest.getIncomplete());
+    field(json, 1, "throughput", throughput());
+    open(json, 1, "errorTypes", '{');
+    new TreeMap<>(loadTest.getErrorTypes()).forEach((type, count) -> field(json, 2, type, count.sum()));
+    close(json, 1, '}');
+    open(json, 1, "errorSamples", '{');
+    new TreeMap<>(loadTest.getErrorSamples()).forEach((type, message) -> field(json, 2, type, message));
+    close(json, 1, '}');
+    histogram(json, 1, "latencyUs", loadTest.getLatency());
+    histogram(json, 1, "serviceTimeUs", loadTest.getServiceTime());
+    open(json, 1, "scripts", '{');
+    for (var entry : loadTest.getCorpus().getEntries()) {
+      open(json, 2, entry.getName(), '{');
+      field(json, 3, "weight", entry.getWeight());
+      histogram(json, 3, "latencyUs", entry.getLatency());
+      close(json, 2, '}');
+    }
+    close(json, 1, '}');
+    histogram(json, 1, "gcPausesUs", monitor.getGcPauses());
+    field(json, 1, "maxRssMb", megabytes(monitor.getMaxRssBytes()));
+    open(json, 1, "timeline", '[');
+    for (var sample : monitor.getTimeline()) {
+      indent(json, 2).append('{')
+        .append("\"seconds\": ").append(number(sample.getElapsedNanos() / NANOS_PER_SECOND))
+        .append(", \"runs\": ").append(sample.getCompleted())
+        .append(", \"errors\": ").append(sample.getErrors())
+        .append(", \"p50Us\": ").append(number(micros(sample.getP50Nanos())))
+        .append(", \"p99Us\": ").append(number(micros(sample.getP99Nanos())))
+        .append(", \"maxUs\": ").append(number(micros(sample.getMaxNanos())))
+        .append(", \"gcPauses\": ").append(sample.getGcPauses())
+        .append(", \"gcPauseMs\": ").append(number(sample.getGcPauseNanos() / NANOS_PER_MICRO / 1000))
+        .append(", \"heapMb\": ").append(number(megabytes(sample.getHeapUsedBytes())))
+        .append(", \"rssMb\": ").append(number(megabytes(sample.getRssBytes())))
+        .append("},\n");
+    }
+    close(json, 1, ']');
+    //the last field has no comma
+    json.setLength(json.length() - 2);
+    return json.append("\n}\n").toString();
+  }
+
+  public String summary() {
+    var options = loadTest.getOptions();
+    var monitor = loadTest.getMonitor();
+    var load = options.isOpenLoop()
+      ? "open loop at " + number(options.getRate()) + "/s"
+      : "closed loop with " + options.getConcurrency() + " clients";
+    var gcPauses = monitor.getGcPauses();
+    return String.join(System.lineSeparator(),
+      options.getEngine() + ", " + load + ", " + options.getDuration().toSeconds() + "s, build " + options.getBuild(),
+      String.format(Locale.ROOT, "runs %d, errors %d, incomplete %d, throughput %.1f/s",
+        loadTest.getCompleted() + loadTest.getErrors(), loadTest.getErrors(), loadTest.getIncomplete(), throughput()),
+      "latency, us      " + percentiles(loadTest.getLatency()),
+      "service time, us " + percentiles(loadTest.getServiceTime()),
+      String.format(Locale.ROOT, "gc pauses %d, total %.1f ms, max %.1f ms, max rss %.0f MB", gcPauses.count(),
+        gcPauses.count() * gcPauses.mean() / NANOS_PER_MICRO / 1000, gcPauses.max() / NANOS_PER_MICRO / 1000,
+        megabytes(monitor.getMaxRssBytes())));
+  }
+
+  private double throughput() {
+    var measuredNanos = loadTest.getMeasuredNanos();
+    return measuredNanos == 0 ? 0 : (loadTest.getCompleted() + loadTest.getErrors()) * NANOS_PER_SECOND / measuredNanos;
+  }
+
+  private static String percentiles(LoadHistogram histogram) {
+    var text = new StringBuilder();
+    for (var percentile : PERCENTILES) {
+      text.append("p").append(number(percentile)).append("=").append(number(micros(histogram.percentile(percentile))))
+        .append(' ');
+    }
+    return text.append("max=").append(number(micros(histogram.max()))).toString();
+  }
+
+  private static void histogram(StringBuilder json, int depth, String name, LoadHistogram histogram) {
+    open(json, depth, name, '{');
+    field(json, depth + 1, "count", histogram.count());
+    field(json, depth + 1, "mean", micros((long) histogram.mean()));
+    for (var percentile : PERCENTILES) {
+      field(json, depth + 1, "p" + number(percentile), micros(histogram.percentile(percentile)));
+    }
+    field(json, depth + 1, "max", micros(histogram.max()));
+    close(json, depth, '}');
+  }
+
+  private static void field(StringBuilder json, int depth, String name, Object value) {
+    indent(json, depth).append(quote(name)).append(": ");
+    if (value instanceof Number) {
+      json.append(number(((Number) value).doubleValue()));
+    } else {
+      json.append(quote(String.valueOf(value)));
+    }
+    json.append(",\n");
+  }
+
+  private static void open(StringBuilder json, int depth, String name, char bracket) {
+    indent(json, depth).append(quote(name)).append(": ").append(bracket).append('\n');
+  }
+
+  //drops the comma of the last member
+  private static void close(StringBuilder json, int depth, char bracket) {
+    if (json.charAt(json.length() - 2) == ',') {
+      json.setLength(json.length() - 2);
+      json.append('\n');
+    }
+    indent(json, depth).append(bracket).append(",\n");
+  }
+
+  private static StringBuilder indent(StringBuilder json, int depth) {
+    return json.append("  ".repeat(depth));
+  }
+
+  private static String quote(String text) {
+    var quoted = new StringBuilder(text.length() + 2).append('"');
+    for (var i = 0; i < text.length(); i++) {
+      var c = text.charAt(i);
+      if (c == '"' || c == '\\') {
+        quoted.append('\\').append(c);
+      } else if (c < ' ') {
+        quoted.append(String.format("\\u%04x", (int) c));
+      } else {
+        quoted.append(c);
+      }
+    }
+    return quoted.append('"').toString();
+  }
+
+  //integers without a fraction, the rest with up to 3 decimals
+  private static String number(double value) {
+    if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      return Long.toString((long) value);
+    }
+    return String.format(Locale.ROOT, "%.3f", value).replaceAll("\\.?0+$", "");
+  }
+
+  private static double micros(long nanos) {
+    return nanos / NANOS_PER_MICRO;
+  }
+
+  private static double megabytes(long bytes) {
+    return bytes < 0 ? -1 : bytes / BYTES_PER_MB;
+  }
+}
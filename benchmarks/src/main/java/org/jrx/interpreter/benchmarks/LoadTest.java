@@ -0,0 +1,231 @@
+package org.jrx.interpreter.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import javax.script.ScriptException;
+import org.jrx.interpreter.core.DaemonThreadFactory;
+import org.jrx.interpreter.core.ExecutionScheduler;
+import org.jrx.interpreter.core.ScriptBindings;
+import org.jrx.interpreter.core.ScriptExecution;
+import org.jrx.interpreter.core.ScriptExecutor;
+
+//replays a corpus of scripts against an engine and writes a json report: latency of the whole run and of every
+//script, throughput, errors, gc pauses and memory over time. At a fixed rate (open loop) the latency of a run counts
+//from the time it was scheduled, not from the time it got submitted, so a stall is charged to every run it delays
+//instead of hiding them (coordinated omission). Clients running one script after another (closed loop) only submit
+//when the previous run is over, there the histogram is corrected with the expected interval if it is given.
+//The seed, the corpus and the load make the reports of different engines and builds comparable
+public class LoadTest {
+  private static final int QUEUE_CAPACITY = 100_000;
+  private static final long DRAIN_SLACK_NANOS = TimeUnit.SECONDS.toNanos(5);
+  private static final long DRAIN_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final LoadTestOptions options;
+  private final LoadHistogram latency = new LoadHistogram();
+  //the run itself without the wait in the queue, what a benchmark of a single run sees
+  private final LoadHistogram serviceTime = new LoadHistogram();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final Map<String, LongAdder> errorTypes = new ConcurrentHashMap<>();
+  private final Map<String, String> errorSamples = new ConcurrentHashMap<>();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private ScriptCorpus corpus;
+  private LoadMonitor monitor;
+  //nothing is recorded during the warmup
+  private volatile boolean measuring;
+  private long measuredNanos;
+  private int incomplete;
+
+  public LoadTest(LoadTestOptions options) {
+    this.options = options;
+  }
+
+  public static void main(String[] args) throws IOException, ScriptException, InterruptedException {
+    LoadTestOptions options;
+    try {
+      options = LoadTestOptions.parse(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(LoadTestOptions.USAGE);
+      System.exit(2);
+      return;
+    }
+    var loadTest = new LoadTest(options).run();
+    var report = new LoadReport(loadTest);
+    Files.writeString(options.getOut(), report.toJson(), StandardCharsets.UTF_8);
+    System.out.println(report.summary());
+    System.out.println("Report: " + options.getOut().toAbsolutePath());
+  }
+
+  public LoadTest run() throws ScriptException, InterruptedException {
+    try (var scheduler = new ExecutionScheduler(options.getParallelism(), QUEUE_CAPACITY, new DaemonThreadFactory("load-worker"));
+         var executor = options.getEngine().createExecutor(scheduler)
+    ) {
+      //the gauges of the run are published over JMX until the executor is closed
+      executor.getMetrics().register();
+      corpus = ScriptCorpus.prepare(options.getCorpus(), options.getEngine(), executor);
+      var random = new Random(options.getSeed());
+      drive(executor, random, options.getWarmup().toNanos());
+      monitor = new LoadMonitor(options.getSampleInterval());
+      var startedNanos = System.nanoTime();
+      monitor.start();
+      measuring = true;
+      incomplete = drive(executor, random, options.getDuration().toNanos());
+      measuring = false;
+      measuredNanos = System.nanoTime() - startedNanos;
+      monitor.close();
+    }
+    return this;
+  }
+
+  public LoadTestOptions getOptions() {
+    return options;
+  }
+
+  public ScriptCorpus getCorpus() {
+    return corpus;
+  }
+
+  public LoadHistogram getLatency() {
+    return latency;
+  }
+
+  public LoadHistogram getServiceTime() {
+    return serviceTime;
+  }
+
+  public long getCompleted() {
+    return completed.sum();
+  }
+
+  public long getErrors() {
+    return errors.sum();
+  }
+
+  public Map<String, LongAdder> getErrorTypes() {
+    return errorTypes;
+  }
+
+  public Map<String, String> getErrorSamples() {
+    return errorSamples;
+  }
+
+  //runs still going after the timeout and the slack, they are in no histogram
+  public int getIncomplete() {
+    return incomplete;
+  }
+
+  public long getMeasuredNanos() {
+    return measuredNanos;
+  }
+
+  public LoadMonitor getMonitor() {
+    return monitor;
+  }
+
+  //returns the runs that did not complete in time
+  private int drive(ScriptExecutor executor, Random random, long durationNanos) throws InterruptedException {
+    var deadline = System.nanoTime() + durationNanos;
+    if (options.isOpenLoop()) {
+      runOpenLoop(executor, random, deadline);
+    } else {
+      runClosedLoop(executor, deadline);
+    }
+    var drainDeadline = System.nanoTime() + options.getTimeout().toNanos() + DRAIN_SLACK_NANOS;
+    while (inFlight.get() > 0 && System.nanoTime() - drainDeadline < 0) {
+      LockSupport.parkNanos(DRAIN_POLL_NANOS);
+    }
+    return inFlight.get();
+  }
+
+  private void runOpenLoop(ScriptExecutor executor, Random random, long deadline) {
+    var intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.getRate();
+    var startedNanos = System.nanoTime();
+    for (long run = 0; ; run++) {
+      var scheduledNanos = startedNanos + (long) (run * intervalNanos);
+      if (scheduledNanos - deadline >= 0) {
+        return;
+      }
+      //behind the schedule the run is submitted at once, its latency still counts from the scheduled time
+      for (var now = System.nanoTime(); now - scheduledNanos < 0; now = System.nanoTime()) {
+        LockSupport.parkNanos(scheduledNanos - now);
+      }
+      submit(executor, corpus.next(random), scheduledNanos, "run " + run);
+    }
+  }
+
+  private void runClosedLoop(ScriptExecutor executor, long deadline) throws InterruptedException {
+    var clients = Executors.newFixedThreadPool(options.getConcurrency(), new DaemonThreadFactory("load-client"));
+    for (var client = 0; client < options.getConcurrency(); client++) {
+      //a sequence of its own for every client, the same in every phase and every engine
+      var random = new Random(options.getSeed() + client);
+      var clientName = "client " + client;
+      clients.execute(() -> {
+        for (long run = 0; System.nanoTime() - deadline < 0; run++) {
+          var execution = submit(executor, corpus.next(random), System.nanoTime(), clientName + " run " + run);
+          try {
+            execution.await();
+          } catch (ScriptException e) {
+            //recorded on completion
+          }
+        }
+      });
+    }
+    clients.shutdown();
+    clients.awaitTermination(deadline - System.nanoTime() + options.getTimeout().toNanos() + DRAIN_SLACK_NANOS,
+      TimeUnit.NANOSECONDS);
+  }
+
+  private ScriptExecution submit(ScriptExecutor executor, ScriptCorpus.Entry entry, long scheduledNanos, String ctx) {
+    inFlight.incrementAndGet();
+    var submittedNanos = System.nanoTime();
+    var execution = executor.execute(entry.getScript(), ScriptBindings.of("ctx", ctx)).withTimeout(options.getTimeout());
+    execution.getCompletion().whenComplete((result, e) -> {
+      var completedNanos = System.nanoTime();
+      var stats = result == null ? null : result.getStats();
+      var serviceNanos = stats == null ? completedNanos - submittedNanos : stats.getExecutionNanos();
+      record(entry, completedNanos - scheduledNanos, serviceNanos, e);
+      inFlight.decrementAndGet();
+    });
+    return execution;
+  }
+
+  //failed runs are in the histograms as well, a fast failure is not a fast run but hiding it skews the percentiles
+  private void record(ScriptCorpus.Entry entry, long latencyNanos, long serviceNanos, Throwable error) {
+    if (!measuring) {
+      return;
+    }
+    var expectedIntervalNanos = options.isOpenLoop() ? 0 : options.getExpectedInterval().toNanos();
+    latency.record(latencyNanos, expectedIntervalNanos);
+    entry.getLatency().record(latencyNanos, expectedIntervalNanos);
+    serviceTime.record(serviceNanos);
+    monitor.record(latencyNanos, error != null);
+    if (error == null) {
+      completed.increment();
+      return;
+    }
+    errors.increment();
+    var cause = rootCause(error);
+    var type = cause.getClass().getSimpleName();
+    errorTypes.computeIfAbsent(type, key -> new LongAdder()).increment();
+    errorSamples.putIfAbsent(type, entry.getName() + ": " + cause.getMessage());
+  }
+
+  private static Throwable rootCause(Throwable error) {
+    var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    while (cause.getCause() != null && cause.getCause() != cause) {
+      cause = cause.getCause();
+    }
+    return cause;
+  }
+}
@@ -0,0 +1,173 @@
+package org.jrx.interpreter.benchmarks;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+
+public final class LoadTestOptions {
+  public static final String DEFAULT_CORPUS = "hello:4,cpu:2,allocation:2,io:1,working:1";
+  public static final String USAGE = String.join(System.lineSeparator(),
+    "Usage: java -cp benchmarks.jar " + LoadTest.class.getName() + " [options]",
+    "  --engine <name>                   one of " + Arrays.toString(Engine.values()) + ", default GROOVY_NATIVE_API",
+    "  --corpus <name:weight,...>        scripts of src/main/resources/scripts/<engine>, default " + DEFAULT_CORPUS,
+    "  --rate <runs per second>          open loop at a fixed rate, latency counts from the scheduled start",
+    "  --concurrency <clients>           closed loop when there is no rate, default 1",
+    "  --expected-interval <duration>    closed loop correction for coordinated omission, off by default",
+    "  --duration <duration>             measured time, default 60s",
+    "  --warmup <duration>               load before the measurement, not reported, default 10s",
+    "  --sample <duration>               timeline resolution, default 1s",
+    "  --timeout <duration>              of a run from its submission, queue included, default 30s",
+    "  --parallelism <workers>           executor workers, default the number of cores",
+    "  --seed <number>                   of the script sequence, default 42",
+    "  --build <label>                   e.g. a version or a commit, default dev",
+    "  --out <file>                      json report, default load-result.json",
+    "Durations are like 500ms, 10s or 2m");
+
+  private Engine engine = Engine.GROOVY_NATIVE_API;
+  private String corpus = DEFAULT_CORPUS;
+  private double rate;
+  private int concurrency = 1;
+  private Duration expectedInterval = Duration.ZERO;
+  private Duration duration = Duration.ofSeconds(60);
+  private Duration warmup = Duration.ofSeconds(10);
+  private Duration sampleInterval = Duration.ofSeconds(1);
+  private Duration timeout = Duration.ofSeconds(30);
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+  private long seed = 42;
+  private String build = "dev";
+  private Path out = Path.of("load-result.json");
+
+  public static LoadTestOptions parse(String... args) {
+    var options = new LoadTestOptions();
+    for (var i = 0; i < args.length; i += 2) {
+      var name = args[i];
+      if (i + 1 >= args.length) {
+        throw new IllegalArgumentException("No value of " + name);
+      }
+      var value = args[i + 1];
+      switch (name) {
+        case "--engine":
+          options.engine = Engine.valueOf(value.toUpperCase(Locale.ROOT));
+          break;
+        case "--corpus":
+          options.corpus = value;
+          break;
+        case "--rate":
+          options.rate = positive(name, Double.parseDouble(value));
+          break;
+        case "--concurrency":
+          options.concurrency = (int) positive(name, Integer.parseInt(value));
+          break;
+        case "--expected-interval":
+          options.expectedInterval = parseDuration(value);
+          break;
+        case "--duration":
+          options.duration = parseDuration(value);
+          break;
+        case "--warmup":
+          options.warmup = parseDuration(value);
+          break;
+        case "--sample":
+          options.sampleInterval = parseDuration(value);
+          break;
+        case "--timeout":
+          options.timeout = parseDuration(value);
+          break;
+        case "--parallelism":
+          options.parallelism = (int) positive(name, Integer.parseInt(value));
+          break;
+        case "--seed":
+          options.seed = Long.parseLong(value);
+          break;
+        case "--build":
+          options.build = value;
+          break;
+        case "--out":
+          options.out = Path.of(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + name);
+      }
+    }
+    if (options.sampleInterval.isZero() || options.timeout.isZero()) {
+      throw new IllegalArgumentException("Sample interval and timeout must be positive");
+    }
+    return options;
+  }
+
+  static Duration parseDuration(String value) {
+    var text = value.trim().toLowerCase(Locale.ROOT);
+    if (text.endsWith("ms")) {
+      return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+    } else if (text.endsWith("s")) {
+      return Duration.ofSeconds(Long.parseLong(text.substring(0, text.length() - 1)));
+    } else if (text.endsWith("m")) {
+      return Duration.ofMinutes(Long.parseLong(text.substring(0, text.length() - 1)));
+    }
+    throw new IllegalArgumentException("Duration " + value + " must end with ms, s or m");
+  }
+
+  private static double positive(String name, double value) {
+    if (value <= 0) {
+      throw new IllegalArgumentException(name + " must be positive, got " + value);
+    }
+    return value;
+  }
+
+  public boolean isOpenLoop() {
+    return rate > 0;
+  }
+
+  public Engine getEngine() {
+    return engine;
+  }
+
+  public String getCorpus() {
+    return corpus;
+  }
+
+  public double getRate() {
+    return rate;
+  }
+
+  public int getConcurrency() {
+    return concurrency;
+  }
+
+  public Duration getExpectedInterval() {
+    return expectedInterval;
+  }
+
+  public Duration getDuration() {
+    return duration;
+  }
+
+  public Duration getWarmup() {
+    return warmup;
+  }
+
+  public Duration getSampleInterval() {
+    return sampleInterval;
+  }
+
+  public Duration getTimeout() {
+    return timeout;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public String getBuild() {
+    return build;
+  }
+
+  public Path getOut() {
+    return out;
+  }
+}
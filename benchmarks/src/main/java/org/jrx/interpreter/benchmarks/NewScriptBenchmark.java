@@ -0,0 +1,29 @@
+package org.jrx.interpreter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import javax.script.ScriptException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class NewScriptBenchmark {
+  private long runCounter;
+
+  @Benchmark
+  public String uniqueScript(EngineState state) throws ScriptException {
+    //a leading comment is valid in every engine and makes each source distinct
+    return state.runner.executeScript("// run " + runCounter++ + "\n" + state.script, EngineState.CTX);
+  }
+}
@@ -0,0 +1,99 @@
+package org.jrx.interpreter.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.script.ScriptException;
+import org.jrx.interpreter.core.PreparedScript;
+import org.jrx.interpreter.core.ScriptExecutor;
+
+//scripts of an engine with their weights, e.g. hello:4,cpu:1. The scripts are prepared once,
+//the choice of the next script depends on the random only, so a seed replays the same sequence for every engine
+public final class ScriptCorpus {
+  private final String spec;
+  private final List<Entry> entries;
+  private final int totalWeight;
+
+  private ScriptCorpus(String spec, List<Entry> entries) {
+    this.spec = spec;
+    this.entries = List.copyOf(entries);
+    this.totalWeight = entries.stream().mapToInt(entry -> entry.weight).sum();
+  }
+
+  public static ScriptCorpus prepare(String spec, Engine engine, ScriptExecutor executor) throws ScriptException {
+    var entries = new ArrayList<Entry>();
+    for (var item : spec.split(",")) {
+      var nameAndWeight = item.trim().split(":");
+      var name = nameAndWeight[0].trim();
+      var weight = nameAndWeight.length > 1 ? parseWeight(item, nameAndWeight[1].trim()) : 1;
+      try {
+        entries.add(new Entry(name, weight, executor.prepare(engine.loadScript(name))));
+      } catch (ScriptException e) {
+        var failure = new ScriptException("Can not prepare " + name + " of " + engine + ": " + e.getMessage());
+        failure.initCause(e);
+        throw failure;
+      }
+    }
+    return new ScriptCorpus(spec, entries);
+  }
+
+  public Entry next(Random random) {
+    var point = random.nextInt(totalWeight);
+    for (var entry : entries) {
+      point -= entry.weight;
+      if (point < 0) {
+        return entry;
+      }
+    }
+    throw new IllegalStateException("No script for " + point + " in " + spec);
+  }
+
+  public String getSpec() {
+    return spec;
+  }
+
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  private static int parseWeight(String item, String weight) {
+    try {
+      var parsed = Integer.parseInt(weight);
+      if (parsed > 0) {
+        return parsed;
+      }
+    } catch (NumberFormatException e) {
+      //reported below
+    }
+    throw new IllegalArgumentException("Weight of " + item + " must be a positive integer");
+  }
+
+  public static final class Entry {
+    private final String name;
+    private final int weight;
+    private final PreparedScript script;
+    private final LoadHistogram latency = new LoadHistogram();
+
+    private Entry(String name, int weight, PreparedScript script) {
+      this.name = name;
+      this.weight = weight;
+      this.script = script;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int getWeight() {
+      return weight;
+    }
+
+    public PreparedScript getScript() {
+      return script;
+    }
+
+    public LoadHistogram getLatency() {
+      return latency;
+    }
+  }
+}
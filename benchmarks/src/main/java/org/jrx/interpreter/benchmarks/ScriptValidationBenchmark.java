@@ -0,0 +1,87 @@
+package org.jrx.interpreter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import javax.script.ScriptException;
+import org.jrx.interpreter.core.ScriptCache;
+import org.jrx.interpreter.core.ScriptInfo;
+import org.jrx.interpreter.core.ScriptValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+//validation of a generated java script of growing size: the former regex and contains checks of all the engines,
+//one ScriptValidator pass with all the rules, and a verdict from the cache
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class ScriptValidationBenchmark {
+  private static final Pattern CLASS_PATTERN = Pattern.compile("class\\s.+?\\s?\\{");
+  private static final Pattern CLASS_NAME = Pattern.compile("class\\s([^\\s]+?)\\s");
+  private static final Pattern SYSTEM_OUT_PATTERN = Pattern.compile("System\\.out\\.|System\\.err\\.");
+
+  @Param({"64", "1024", "4096"})
+  public int sizeKb;
+
+  private String script;
+  private String hash;
+  private ScriptValidator validator;
+
+  @Setup
+  public void setUp() {
+    var source = new StringBuilder(sizeKb * 1024 + 256);
+    for (var i = 0; source.length() < sizeKb * 1024; i++) {
+      source.append("//helper ").append(i).append(", not the main class\n")
+        .append("class Helper").append(i).append(" {\n")
+        .append("  /* a \"quoted\" comment */\n")
+        .append("  static String describe(int value) {\n")
+        .append("    System.out.println(\"value {\" + value + \"}\");\n")
+        .append("    return 'x' + String.valueOf(value);\n")
+        .append("  }\n")
+        .append("}\n");
+    }
+    source.append("class Main {\n  public static void main(String... args) {\n    System.out.println(args[0]);\n  }\n}\n");
+    script = source.toString();
+    hash = ScriptCache.hash(script);
+    validator = ScriptValidator.of(ScriptValidator.Rule.values());
+  }
+
+  @Benchmark
+  public void legacyChecks(Blackhole blackhole) {
+    blackhole.consume(script.contains("public class"));
+    blackhole.consume(script.contains("public static void main"));
+    var className = CLASS_NAME.matcher(script);
+    blackhole.consume(className.find() ? className.group(1) : null);
+    blackhole.consume(CLASS_PATTERN.matcher(script).matches());
+    blackhole.consume(script.contains("static"));
+    blackhole.consume(SYSTEM_OUT_PATTERN.matcher(script).replaceAll(""));
+  }
+
+  @Benchmark
+  public String scan() {
+    return validator.scan(script).stripSystemStreams(script);
+  }
+
+  //the key of the cache, paid on every prepare
+  @Benchmark
+  public String hash() {
+    return ScriptCache.hash(script);
+  }
+
+  @Benchmark
+  public ScriptInfo cachedVerdict() throws ScriptException {
+    return validator.getVerdicts().get(hash, script, (key, source) -> validator.scan(source));
+  }
+}
@@ -0,0 +1,17 @@
+package org.jrx.interpreter.benchmarks;
+
+public enum Workload {
+  HELLO("hello"),
+  CPU("cpu"),
+  ALLOCATION("allocation");
+
+  private final String scriptName;
+
+  Workload(String scriptName) {
+    this.scriptName = scriptName;
+  }
+
+  public String getScriptName() {
+    return scriptName;
+  }
+}
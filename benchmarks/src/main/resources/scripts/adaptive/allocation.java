@@ -0,0 +1,7 @@
+import java.util.ArrayList;
+
+ArrayList list = new ArrayList();
+for (int i = 0; i < 20000; i++) {
+  list.add("item-" + i);
+}
+print("allocation, ctx=" + ctx + ", length=" + String.join(",", list).length());
@@ -0,0 +1,5 @@
+long acc = 0;
+for (int i = 0; i < 200000; i++) {
+  acc += (long) i * i % 7;
+}
+print("cpu, ctx=" + ctx + ", acc=" + acc);
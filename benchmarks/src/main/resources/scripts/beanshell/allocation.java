@@ -0,0 +1,13 @@
+import java.util.ArrayList;
+
+class BenchScript {
+  public static void main(String[] args) {
+    var list = new ArrayList<String>();
+    for (int i = 0; i < 20000; i++) {
+      list.add("item-" + i);
+    }
+    print("allocation, ctx=" + args[0] + ", length=" + String.join(",", list).length());
+  }
+}
+
+BenchScript.main(new String[] {ctx});
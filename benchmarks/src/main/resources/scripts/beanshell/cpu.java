@@ -0,0 +1,11 @@
+class BenchScript {
+  public static void main(String[] args) {
+    long acc = 0;
+    for (int i = 0; i < 200000; i++) {
+      acc += (long) i * i % 7;
+    }
+    print("cpu, ctx=" + args[0] + ", acc=" + acc);
+  }
+}
+
+BenchScript.main(new String[] {ctx});
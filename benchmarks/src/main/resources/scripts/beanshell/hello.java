@@ -0,0 +1,7 @@
+class BenchScript {
+  public static void main(String[] args) {
+    print("hello, ctx=" + args[0]);
+  }
+}
+
+BenchScript.main(new String[] {ctx});
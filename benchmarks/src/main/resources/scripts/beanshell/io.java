@@ -0,0 +1,23 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.file.Files;
+
+class BenchScript {
+  //no varargs methods, beanshell does not call them
+  public static void main(String[] args) throws Exception {
+    File file = File.createTempFile("script-io", ".txt");
+    try {
+      FileWriter writer = new FileWriter(file);
+      try {
+        writer.write(("io, ctx=" + args[0] + "\n").repeat(2000));
+      } finally {
+        writer.close();
+      }
+      print("io, ctx=" + args[0] + ", lines=" + Files.readAllLines(file.toPath()).size());
+    } finally {
+      file.delete();
+    }
+  }
+}
+
+BenchScript.main(new String[] {ctx});
@@ -0,0 +1 @@
+print("last byte=" + payload.get(payload.limit() - 1));
@@ -0,0 +1,2 @@
+payload = java.util.Base64.getDecoder().decode(ctx);
+print("last byte=" + payload[payload.length - 1]);
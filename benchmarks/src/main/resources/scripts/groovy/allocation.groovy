@@ -0,0 +1,5 @@
+List<String> list = new ArrayList<>()
+for (int i = 0; i < 20000; i++) {
+  list.add("item-" + i)
+}
+println("allocation, ctx=" + ctx + ", length=" + String.join(",", list).length())
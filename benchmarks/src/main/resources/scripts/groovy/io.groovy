@@ -0,0 +1,9 @@
+import java.nio.file.Files
+
+def file = Files.createTempFile("script-io", ".txt")
+try {
+  Files.writeString(file, ("io, ctx=" + ctx + "\n").repeat(2000))
+  println("io, ctx=" + ctx + ", lines=" + Files.readAllLines(file).size())
+} finally {
+  Files.delete(file)
+}
@@ -0,0 +1 @@
+println("last byte=" + payload.get(payload.limit() - 1))
@@ -0,0 +1,2 @@
+def payload = Base64.decoder.decode(ctx)
+println("last byte=" + payload[payload.length - 1])
@@ -0,0 +1,5 @@
+class BenchScript {
+  public static void main(String... args) {
+    println("hello, ctx=" + args[0]);
+  }
+}
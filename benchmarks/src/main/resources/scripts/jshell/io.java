@@ -0,0 +1,13 @@
+import java.nio.file.Files;
+
+class BenchScript {
+  public static void main(String... args) throws Exception {
+    var file = Files.createTempFile("script-io", ".txt");
+    try {
+      Files.writeString(file, ("io, ctx=" + args[0] + "\n").repeat(2000));
+      println("io, ctx=" + args[0] + ", lines=" + Files.readAllLines(file).size());
+    } finally {
+      Files.delete(file);
+    }
+  }
+}
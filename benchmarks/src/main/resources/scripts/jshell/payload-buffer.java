@@ -0,0 +1,6 @@
+class BenchScript {
+  public static void main(String... args) {
+    java.nio.ByteBuffer payload = binding("payload");
+    println("last byte=" + payload.get(payload.limit() - 1));
+  }
+}
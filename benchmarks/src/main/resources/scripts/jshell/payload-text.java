@@ -0,0 +1,6 @@
+class BenchScript {
+  public static void main(String... args) {
+    var payload = java.util.Base64.getDecoder().decode(args[0]);
+    println("last byte=" + payload[payload.length - 1]);
+  }
+}
@@ -0,0 +1,5 @@
+val list = ArrayList<String>()
+for (i in 0 until 20000) {
+  list.add("item-" + i)
+}
+println("allocation, length=" + list.joinToString(",").length)
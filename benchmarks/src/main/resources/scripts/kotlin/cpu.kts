@@ -0,0 +1,5 @@
+var acc = 0L
+for (i in 0 until 200000) {
+  acc += i.toLong() * i % 7
+}
+println("cpu, acc=" + acc)
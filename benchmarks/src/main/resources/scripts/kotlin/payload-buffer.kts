@@ -0,0 +1,2 @@
+val payload = binding("payload", java.nio.ByteBuffer::class.java)
+println("last byte=" + payload.get(payload.limit() - 1))
@@ -0,0 +1,2 @@
+val payload = java.util.Base64.getDecoder().decode(ctx as String)
+println("last byte=" + payload[payload.size - 1])
@@ -0,0 +1,2 @@
+println(ctx)
+println("arg")
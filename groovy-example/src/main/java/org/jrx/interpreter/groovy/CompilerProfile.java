@@ -0,0 +1,54 @@
+package org.jrx.interpreter.groovy;
+
+import java.util.Arrays;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import static org.codehaus.groovy.control.messages.WarningMessage.NONE;
+import static org.codehaus.groovy.control.messages.WarningMessage.PARANOIA;
+
+public enum CompilerProfile {
+  //everything the compiler can tell about a script
+  DEV("dev", false) {
+    @Override
+    void configure(CompilerConfiguration compilerConfig) {
+      compilerConfig.setVerbose(true);
+      compilerConfig.setWarningLevel(PARANOIA);
+      compilerConfig.setDebug(true);
+    }
+  },
+  //diagnostics off, static compilation for the scripts that type check.
+  //invokedynamic is off: with the non-indy groovy runtime jar dynamic scripts run several times slower
+  PRODUCTION("production", true) {
+    @Override
+    void configure(CompilerConfiguration compilerConfig) {
+      compilerConfig.setVerbose(false);
+      compilerConfig.setWarningLevel(NONE);
+      compilerConfig.setDebug(false);
+      compilerConfig.setScriptBaseClass(ContextScript.class.getName());
+    }
+  };
+
+  private final String profileName;
+  private final boolean staticCompilation;
+
+  CompilerProfile(String profileName, boolean staticCompilation) {
+    this.profileName = profileName;
+    this.staticCompilation = staticCompilation;
+  }
+
+  public static CompilerProfile forName(String profileName) {
+    return Arrays.stream(values())
+      .filter(profile -> profile.profileName.equals(profileName))
+      .findFirst()
+      .orElseThrow(() -> new IllegalArgumentException("Unknown compiler profile " + profileName));
+  }
+
+  public String getProfileName() {
+    return profileName;
+  }
+
+  public boolean isStaticCompilation() {
+    return staticCompilation;
+  }
+
+  abstract void configure(CompilerConfiguration compilerConfig);
+}
@@ -0,0 +1,12 @@
+package org.jrx.interpreter.groovy;
+
+import groovy.lang.Script;
+
+//typed accessor lets statically compiled scripts see the ctx binding variable. The ctx may be of any type, a script
+//using it as a String has to cast it or falls back to dynamic compilation
+public abstract class ContextScript extends Script {
+
+  public Object getCtx() {
+    return getBinding().getVariable("ctx");
+  }
+}
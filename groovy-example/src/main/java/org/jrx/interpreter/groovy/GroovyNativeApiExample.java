@@ -1,72 +1,270 @@
 package org.jrx.interpreter.groovy;
 
 import groovy.lang.Binding;
-import groovy.lang.GroovyShell;
-import groovy.transform.ConditionalInterrupt;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovySystem;
+import groovy.lang.Script;
+import groovy.transform.CompileStatic;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.regex.Pattern;
+import java.util.concurrent.Executor;
 import javax.script.ScriptException;
 import org.codehaus.groovy.ast.ASTNode;
 import org.codehaus.groovy.ast.tools.GeneralUtils;
+import org.codehaus.groovy.control.CompilationUnit;
 import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.MultipleCompilationErrorsException;
+import org.codehaus.groovy.control.Phases;
 import org.codehaus.groovy.control.SourceUnit;
 import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.codehaus.groovy.tools.GroovyClass;
 import org.codehaus.groovy.transform.ASTTransformation;
 import org.codehaus.groovy.transform.GroovyASTTransformation;
-import static org.codehaus.groovy.control.messages.WarningMessage.PARANOIA;
+import org.jrx.interpreter.core.BytecodeCache;
+import org.jrx.interpreter.core.BytecodeClassLoader;
+import org.jrx.interpreter.core.ExecutionScheduler;
+import org.jrx.interpreter.core.ExecutorMetrics;
+import org.jrx.interpreter.core.Phase;
+import org.jrx.interpreter.core.PreparedScript;
+import org.jrx.interpreter.core.ScriptBindings;
+import org.jrx.interpreter.core.ScriptCache;
+import org.jrx.interpreter.core.ScriptExecution;
+import org.jrx.interpreter.core.ScriptExecutor;
+import org.jrx.interpreter.core.ScriptOutput;
+import org.jrx.interpreter.core.ScriptResult;
+import org.jrx.interpreter.core.ScriptValidator;
 
-public class GroovyNativeApiExample {
-  private static final AtomicBoolean STOP_EXECUTION_SWITCH = new AtomicBoolean();
-  private static final Pattern SYSTEM_OUT_PATTERN = Pattern.compile("System\\.out\\.|System\\.err\\.");
-  private static final String STOP_EXECUTION_SWITCH_NAME = "stopExecutionSwitch";
+public class GroovyNativeApiExample implements ScriptExecutor {
+  //no rules, only finds System.out and System.err references
+  private static final ScriptValidator SCANNER = ScriptValidator.of();
+  private static final int DEFAULT_CACHE_SIZE = 256;
+  private static final String ENGINE_NAME = "groovy-native";
+  private static final String SCRIPT_CLASS_PREFIX = "Script_";
+  //bump when the transformations change the generated code, it invalidates the persisted bytecode
+  private static final int TRANSFORMATIONS_VERSION = 2;
+
+  private final ScriptCache<Class<? extends Script>> scriptCache;
+  private final Executor executor;
+  private final CompilerProfile compilerProfile;
+  private final BytecodeCache bytecodeCache;
+  private final ExecutorMetrics metrics;
+
+  public GroovyNativeApiExample() {
+    this(DEFAULT_CACHE_SIZE);
+  }
+
+  public GroovyNativeApiExample(int cacheSize) {
+    this(cacheSize, ExecutionScheduler.shared());
+  }
+
+  public GroovyNativeApiExample(int cacheSize, Executor executor) {
+    this(cacheSize, executor, CompilerProfile.DEV);
+  }
+
+  public GroovyNativeApiExample(int cacheSize, Executor executor, CompilerProfile compilerProfile) {
+    this(cacheSize, executor, compilerProfile, null);
+  }
+
+  //compiled classes outlive the jvm in the bytecode cache, null compiles every script after a restart
+  public GroovyNativeApiExample(int cacheSize, Executor executor, CompilerProfile compilerProfile, BytecodeCache bytecodeCache) {
+    //every script has a class loader of its own, an evicted script is unloaded once the runtime forgets its metaclass
+    this.scriptCache = new ScriptCache<>(cacheSize, InvokerHelper::removeClass);
+    this.executor = executor;
+    this.compilerProfile = compilerProfile;
+    this.bytecodeCache = bytecodeCache;
+    this.metrics = new ExecutorMetrics(ENGINE_NAME)
+      .cacheGauges("scriptCache", scriptCache)
+      .schedulerGauges(executor);
+    if (bytecodeCache != null) {
+      metrics.gauge("bytecodeCache.hits", bytecodeCache::hits)
+        .gauge("bytecodeCache.misses", bytecodeCache::misses)
+        .gauge("bytecodeCache.failures", bytecodeCache::failures);
+    }
+  }
 
   public static void main(String[] args) throws URISyntaxException, ScriptException, IOException {
     var scriptPath = Path.of(GroovyNativeApiExample.class.getResource("/WorkingScript.java").toURI());
     var script = Files.readString(scriptPath, StandardCharsets.UTF_8);
-    System.out.println("Custom output: " + new GroovyNativeApiExample().executeScript(script, "external context"));
+    var compilerProfile = CompilerProfile.forName(args.length > 0 ? args[0] : CompilerProfile.DEV.getProfileName());
+    var bytecodeCache = args.length > 1 ? new BytecodeCache(Path.of(args[1])) : null;
+    try (var example = new GroovyNativeApiExample(DEFAULT_CACHE_SIZE, ExecutionScheduler.shared(), compilerProfile, bytecodeCache)) {
+      System.out.println("Custom output: " + example.executeScript(script, "external context"));
+    }
   }
 
   public String executeScript(String script, String ctxVariable) throws ScriptException {
     try (var os = new ByteArrayOutputStream();
          var out = new PrintWriter(os, true, StandardCharsets.UTF_8)
     ) {
-
-      var compilerConfig = new CompilerConfiguration();
-      compilerConfig.setSourceEncoding(StandardCharsets.UTF_8.name());
-      compilerConfig.setVerbose(true);
-      compilerConfig.setWarningLevel(PARANOIA);
-      compilerConfig.setDebug(true);
-      var stopAllClosure = GeneralUtils.closureX(GeneralUtils.returnS(GeneralUtils.callX(GeneralUtils.varX(STOP_EXECUTION_SWITCH_NAME), "get")));
-      compilerConfig.addCompilationCustomizers(
-        new ASTTransformationCustomizer(Map.of(
-          "value", stopAllClosure,
-          "thrown", RuntimeException.class
-        ), ConditionalInterrupt.class),
-        new ASTTransformationCustomizer(new PrintMethodEnrichTransformation())
-      );
-      var binding = new Binding();
-      binding.setProperty(STOP_EXECUTION_SWITCH_NAME, STOP_EXECUTION_SWITCH);
-      binding.setProperty("out", out);
-      binding.setProperty("err", out);
-      binding.setProperty("ctx", ctxVariable);
-      var shell = new GroovyShell(GroovyNativeApiExample.class.getClassLoader(), binding, compilerConfig);
-      var compiledScript = shell.parse(SYSTEM_OUT_PATTERN.matcher(script).replaceAll(""));
-      compiledScript.run();
-      return os.toString(StandardCharsets.UTF_8);
+      //nothing stops a synchronous run, its checkpoints find no token bound
+      var scriptClass = scriptCache.get(script, this::compile);
+      var phaseStartedNanos = System.nanoTime();
+      var scriptInstance = InvokerHelper.createScript(scriptClass, createBinding(out, Map.of("ctx", ctxVariable)));
+      phaseStartedNanos = metrics.record(Phase.CONTEXT_SETUP, phaseStartedNanos);
+      scriptInstance.run();
+      phaseStartedNanos = metrics.record(Phase.EXECUTION, phaseStartedNanos);
+      var collected = os.toString(StandardCharsets.UTF_8);
+      metrics.record(Phase.OUTPUT_COLLECTION, phaseStartedNanos);
+      return collected;
     } catch (IOException | RuntimeException e) {
       throw new ScriptException(e);
     }
   }
 
+  @Override
+  public String getEngineName() {
+    return ENGINE_NAME;
+  }
+
+  @Override
+  public PreparedScript prepare(String script) throws ScriptException {
+    var startedNanos = System.nanoTime();
+    try {
+      var scriptClass = scriptCache.get(script, this::compile);
+      return new PreparedScript(ENGINE_NAME, script, scriptClass, System.nanoTime() - startedNanos);
+    } catch (RuntimeException e) {
+      throw new ScriptException(e);
+    }
+  }
+
+  @Override
+  public ScriptExecution execute(PreparedScript script, ScriptBindings bindings, ScriptOutput output) {
+    Class<? extends Script> scriptClass;
+    try {
+      scriptClass = ((Class<?>) script.getCompiled(ENGINE_NAME, Class.class)).asSubclass(Script.class);
+    } catch (IllegalArgumentException e) {
+      return output.attach(ScriptExecution.failed(script, e));
+    }
+    return output.attach(ScriptExecution.submit(script, executor, execution -> {
+      var phaseStartedNanos = System.nanoTime();
+      //the injected checkpoints poll the token, interrupting the thread is not enough
+      try (var interruptToken = InterruptToken.bind();
+           var out = new PrintWriter(output.open(execution), true, StandardCharsets.UTF_8)
+      ) {
+        execution.onCancel(interruptToken::interrupt);
+        var scriptInstance = InvokerHelper.createScript(scriptClass, createBinding(out, bindings.asMap()));
+        phaseStartedNanos = metrics.record(Phase.CONTEXT_SETUP, phaseStartedNanos);
+        var value = scriptInstance.run();
+        phaseStartedNanos = metrics.record(Phase.EXECUTION, phaseStartedNanos);
+        out.flush();
+        var result = new ScriptResult(output.collected(), value);
+        metrics.record(Phase.OUTPUT_COLLECTION, phaseStartedNanos);
+        return result;
+      }
+    }));
+  }
+
+  public ScriptCache<Class<? extends Script>> getScriptCache() {
+    return scriptCache;
+  }
+
+  public CompilerProfile getCompilerProfile() {
+    return compilerProfile;
+  }
+
+  public Optional<BytecodeCache> getBytecodeCache() {
+    return Optional.ofNullable(bytecodeCache);
+  }
+
+  @Override
+  public ExecutorMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public void close() {
+    metrics.close();
+  }
+
+  private static Binding createBinding(PrintWriter out, Map<String, Object> variables) {
+    var binding = new Binding();
+    variables.forEach(binding::setProperty);
+    binding.setProperty("out", out);
+    binding.setProperty("err", out);
+    return binding;
+  }
+
+  private Class<? extends Script> compile(String key, String script) {
+    var startedNanos = System.nanoTime();
+    var source = SCANNER.scan(script).stripSystemStreams(script);
+    var validatedNanos = metrics.record(Phase.VALIDATION, startedNanos);
+    try {
+      if (bytecodeCache == null) {
+        return defineScript(key, wrap(compileClasses(key, source)));
+      }
+      var cacheKey = BytecodeCache.key(key, GroovySystem.getVersion(), compilerProfile.getProfileName() + ":" + TRANSFORMATIONS_VERSION);
+      var classFiles = bytecodeCache.load(cacheKey).orElse(null);
+      if (classFiles == null) {
+        var compiled = compileClasses(key, source);
+        bytecodeCache.store(cacheKey, compiled);
+        classFiles = wrap(compiled);
+      }
+      return defineScript(key, classFiles);
+    } finally {
+      metrics.record(Phase.COMPILE, validatedNanos);
+    }
+  }
+
+  private Map<String, byte[]> compileClasses(String key, String source) {
+    if (compilerProfile.isStaticCompilation()) {
+      try {
+        return compileClasses(key, source, true);
+      } catch (MultipleCompilationErrorsException e) {
+        //the script relies on dynamic features, e.g. undeclared binding variables
+      }
+    }
+    return compileClasses(key, source, false);
+  }
+
+  private Map<String, byte[]> compileClasses(String key, String source, boolean staticCompilation) {
+    var compilerConfig = new CompilerConfiguration();
+    compilerConfig.setSourceEncoding(StandardCharsets.UTF_8.name());
+    compilerProfile.configure(compilerConfig);
+    compilerConfig.addCompilationCustomizers(
+      new ASTTransformationCustomizer(new InterruptCheckTransformation()),
+      new ASTTransformationCustomizer(new PrintMethodEnrichTransformation())
+    );
+    if (staticCompilation) {
+      compilerConfig.addCompilationCustomizers(new ASTTransformationCustomizer(CompileStatic.class));
+    }
+    //the unit resolves the referenced classes through the loader, the script classes are defined by defineScript
+    var classLoader = new GroovyClassLoader(GroovyNativeApiExample.class.getClassLoader(), compilerConfig);
+    var compilationUnit = new CompilationUnit(compilerConfig, null, classLoader);
+    compilationUnit.addSource(SCRIPT_CLASS_PREFIX + key + ".groovy", source);
+    compilationUnit.compile(Phases.CLASS_GENERATION);
+    var classes = new LinkedHashMap<String, byte[]>();
+    for (var compiled : compilationUnit.getClasses()) {
+      var groovyClass = (GroovyClass) compiled;
+      classes.put(groovyClass.getName(), groovyClass.getBytes());
+    }
+    return classes;
+  }
+
+  private static Map<String, ByteBuffer> wrap(Map<String, byte[]> classes) {
+    var classFiles = new LinkedHashMap<String, ByteBuffer>();
+    classes.forEach((name, classFile) -> classFiles.put(name, ByteBuffer.wrap(classFile)));
+    return classFiles;
+  }
+
+  private static Class<? extends Script> defineScript(String key, Map<String, ByteBuffer> classFiles) {
+    var classLoader = new BytecodeClassLoader(GroovyNativeApiExample.class.getClassLoader(), classFiles);
+    try {
+      return classLoader.loadClass(SCRIPT_CLASS_PREFIX + key).asSubclass(Script.class);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException("Compiled script has no class " + SCRIPT_CLASS_PREFIX + key, e);
+    }
+  }
+
   @GroovyASTTransformation
   public static class PrintMethodEnrichTransformation implements ASTTransformation {
 
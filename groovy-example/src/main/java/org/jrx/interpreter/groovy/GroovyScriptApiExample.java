@@ -1,85 +1,122 @@
 package org.jrx.interpreter.groovy;
 
-import java.io.ByteArrayOutputStream;
+import groovy.lang.GroovyClassLoader;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.lang.reflect.Field;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.CancellationException;
-import java.util.concurrent.CompletionException;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.regex.Pattern;
-import javax.script.ScriptContext;
+import java.util.concurrent.Executor;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
-import javax.script.SimpleBindings;
-import javax.script.SimpleScriptContext;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer;
+import org.codehaus.groovy.reflection.ClassInfo;
 import org.codehaus.groovy.jsr223.GroovyScriptEngineFactory;
+import org.codehaus.groovy.jsr223.GroovyScriptEngineImpl;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.codehaus.groovy.util.ManagedConcurrentValueMap;
+import org.jrx.interpreter.core.EngineReuse;
+import org.jrx.interpreter.core.ExecutionScheduler;
+import org.jrx.interpreter.core.Jsr223ScriptExecutor;
+import org.jrx.interpreter.core.ScriptExecution;
+import org.jrx.interpreter.core.ScriptValidator;
+import org.jrx.interpreter.core.StopSwitch;
 
-public class GroovyScriptApiExample {
-  private static final AtomicBoolean STOP_EXECUTION_SWITCH = new AtomicBoolean();
-  private static final Pattern CLASS_PATTERN = Pattern.compile("class\\s.+?\\s?\\{");
+public class GroovyScriptApiExample extends Jsr223ScriptExecutor {
+  private static final StopSwitch STOP_EXECUTION_SWITCH = new StopSwitch();
+  private static final ScriptValidator VALIDATOR = ScriptValidator.of(ScriptValidator.Rule.NO_CLASSES,
+    ScriptValidator.Rule.NO_STATIC);
 
-  private static final ExecutorService EXECUTOR_SERVICE = Executors.newSingleThreadExecutor();
-  private static final GroovyScriptEngineFactory KOTLIN_SCRIPT_ENGINE_FACTORY = new GroovyScriptEngineFactory();
+  private static final GroovyScriptEngineFactory KOTLIN_SCRIPT_ENGINE_FACTORY = new InterruptibleEngineFactory();
+  private static final Field GLOBAL_CLOSURES = accessibleField(GroovyScriptEngineImpl.class, "globalClosures");
+  private static final Field CLOSURES_MAP = accessibleField(ManagedConcurrentValueMap.class, "internalMap");
+
+  public GroovyScriptApiExample() {
+    this(ExecutionScheduler.shared());
+  }
+
+  public GroovyScriptApiExample(Executor executor) {
+    this(executor, EngineReuse.forFactory(KOTLIN_SCRIPT_ENGINE_FACTORY));
+  }
+
+  public GroovyScriptApiExample(Executor executor, EngineReuse engineReuse) {
+    super("groovy-jsr223", KOTLIN_SCRIPT_ENGINE_FACTORY, engineReuse, executor, STOP_EXECUTION_SWITCH);
+  }
 
   public static void main(String[] args) throws URISyntaxException, IOException, ScriptException {
     var scriptPath = Path.of(GroovyScriptApiExample.class.getResource("/WorkingScript.java").toURI());
     var script = Files.readString(scriptPath, StandardCharsets.UTF_8);
-    try {
-      System.out.println("Custom output: " + new GroovyScriptApiExample().executeScript(script, "external context"));
-    } finally {
-      EXECUTOR_SERVICE.shutdownNow();
+    System.out.println("Custom output: " + new GroovyScriptApiExample().executeScript(script, "external context"));
+  }
+
+  //the scripts poll the token bound to the run, see InterruptCheckTransformation
+  @Override
+  protected AutoCloseable bindStop(ScriptExecution execution) {
+    var interruptToken = InterruptToken.bind();
+    execution.onCancel(interruptToken::interrupt);
+    return interruptToken;
+  }
+
+  //the runtime keeps class infos of the scripts and of the call sites generated for them softly reachable,
+  //they would keep the classes of the engine loaded until the heap runs short
+  @Override
+  protected void engineRetired(ScriptEngine engine) {
+    var classLoader = ((GroovyScriptEngineImpl) engine).getClassLoader();
+    for (var classInfo : ClassInfo.getAllClassInfo()) {
+      var type = classInfo.getTheClass();
+      if (type != null && isDefinedBy(type, classLoader)) {
+        InvokerHelper.removeClass(type);
+      }
     }
+    classLoader.clearCache();
   }
 
-  public String executeScript(String script, String ctxVariable) throws ScriptException {
-    if (CLASS_PATTERN.matcher(script).matches()) {
-      throw new ScriptException("Script must contain no class definitions");
+  //the engine turns every method of a script into a global closure, the scripts of the next runs could call it.
+  //Its map has no clear, the closures are dropped from the map behind it
+  @Override
+  protected void releaseEngineState(ScriptEngine engine) {
+    try {
+      var globalClosures = GLOBAL_CLOSURES.get(engine);
+      ((Map<?, ?>) CLOSURES_MAP.get(globalClosures)).clear();
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Can not clear global closures of " + engine, e);
     }
-    if (script.contains("static")) {
-      throw new ScriptException("Script must contain no static definitions");
+  }
+
+  private static Field accessibleField(Class<?> type, String name) {
+    try {
+      var field = type.getDeclaredField(name);
+      field.setAccessible(true);
+      return field;
+    } catch (NoSuchFieldException e) {
+      throw new IllegalStateException("No field " + name + " in " + type.getName() + " of this groovy version", e);
     }
-    try (var os = new ByteArrayOutputStream();
-         var out = new PrintWriter(os, true, StandardCharsets.UTF_8)
-    ) {
+  }
 
-      ScriptEngine scriptEngine = KOTLIN_SCRIPT_ENGINE_FACTORY.getScriptEngine();
-      var context = new SimpleScriptContext();
-      context.setWriter(out);
-      context.setErrorWriter(out);
-      var bindings = new SimpleBindings(new HashMap<>(Map.of("ctx", ctxVariable)));
-      context.setBindings(bindings, ScriptContext.ENGINE_SCOPE);
-      scriptEngine.setContext(context);
-      var future = EXECUTOR_SERVICE.submit(() -> {
-        try {
-          return scriptEngine.eval(script);
-        } catch (ScriptException e) {
-          throw new CompletionException(e);
-        }
-      });
-      while (!future.isDone()) {
-        if (STOP_EXECUTION_SWITCH.get()) {
-          future.cancel(true);
-          EXECUTOR_SERVICE.shutdown();
-        }
-        Thread.sleep(50);
+  private static boolean isDefinedBy(Class<?> type, ClassLoader classLoader) {
+    for (var loader = type.getClassLoader(); loader != null; loader = loader.getParent()) {
+      if (loader == classLoader) {
+        return true;
       }
-      Object result = future.get();
-      out.write(String.valueOf(result));
-      return os.toString(StandardCharsets.UTF_8);
-    } catch (InterruptedException e) {
-      Thread.currentThread().interrupt();
-      throw new ScriptException(e);
-    } catch (IOException | ExecutionException | CancellationException | CompletionException e) {
-      throw new ScriptException(e);
     }
+    return false;
+  }
+
+  //the engines compile the scripts with the interrupt checks, a stopped script ends at its next loop iteration or call
+  private static class InterruptibleEngineFactory extends GroovyScriptEngineFactory {
+    @Override
+    public ScriptEngine getScriptEngine() {
+      var compilerConfig = new CompilerConfiguration();
+      compilerConfig.addCompilationCustomizers(new ASTTransformationCustomizer(new InterruptCheckTransformation()));
+      return new GroovyScriptEngineImpl(new GroovyClassLoader(GroovyScriptApiExample.class.getClassLoader(), compilerConfig));
+    }
+  }
+
+  @Override
+  protected void validate(String hash, String script) throws ScriptException {
+    VALIDATOR.validate(hash, script);
   }
 }
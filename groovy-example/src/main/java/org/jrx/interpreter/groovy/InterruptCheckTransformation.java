@@ -0,0 +1,129 @@
+package org.jrx.interpreter.groovy;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import org.codehaus.groovy.ast.ASTNode;
+import org.codehaus.groovy.ast.ClassCodeVisitorSupport;
+import org.codehaus.groovy.ast.ClassHelper;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.FieldNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.expr.ClosureExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.stmt.BlockStatement;
+import org.codehaus.groovy.ast.stmt.DoWhileStatement;
+import org.codehaus.groovy.ast.stmt.ForStatement;
+import org.codehaus.groovy.ast.stmt.Statement;
+import org.codehaus.groovy.ast.stmt.WhileStatement;
+import org.codehaus.groovy.ast.tools.GeneralUtils;
+import org.codehaus.groovy.control.CompilePhase;
+import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.groovy.transform.ASTTransformation;
+import org.codehaus.groovy.transform.GroovyASTTransformation;
+
+//injects an InterruptToken check at every loop iteration, method and closure entry, the token samples its flag.
+//script instances resolve the token once into a field, closures and other classes look it up on every check.
+//the checks are direct method calls, like the ones of ThreadInterrupt: dynamic scripts don't dispatch them through
+//call sites, unlike the ConditionalInterrupt condition method
+@GroovyASTTransformation(phase = CompilePhase.CANONICALIZATION)
+public class InterruptCheckTransformation implements ASTTransformation {
+  private static final ClassNode INTERRUPT_TOKEN = ClassHelper.make(InterruptToken.class);
+  private static final String TOKEN_FIELD_NAME = "$interruptToken";
+  private static final MethodNode CHECK_METHOD = INTERRUPT_TOKEN.getMethods("check").get(0);
+  private static final MethodNode CHECKPOINT_METHOD = INTERRUPT_TOKEN.getMethods("checkpoint").get(0);
+
+  @Override
+  public void visit(ASTNode[] nodes, SourceUnit source) {
+    if (source == null) {
+      return;
+    }
+    var visitor = new CheckpointVisitor(source);
+    source.getAST().getClasses().forEach(visitor::visitClass);
+  }
+
+  private static Statement withCheck(Statement statement, Expression check) {
+    var statements = new ArrayList<Statement>(List.of(GeneralUtils.stmt(check)));
+    if (statement instanceof BlockStatement) {
+      var block = (BlockStatement) statement;
+      statements.addAll(block.getStatements());
+      return GeneralUtils.block(block.getVariableScope(), statements);
+    }
+    statements.add(statement);
+    return GeneralUtils.block(statements.toArray(new Statement[0]));
+  }
+
+  private static class CheckpointVisitor extends ClassCodeVisitorSupport {
+    private final SourceUnit source;
+    private FieldNode tokenField;
+    private boolean staticContext;
+    private int closureDepth;
+
+    private CheckpointVisitor(SourceUnit source) {
+      this.source = source;
+    }
+
+    @Override
+    public void visitClass(ClassNode node) {
+      tokenField = node.isScript()
+        ? node.addField(TOKEN_FIELD_NAME, Modifier.PRIVATE | Modifier.FINAL, INTERRUPT_TOKEN, GeneralUtils.callX(INTERRUPT_TOKEN, "current"))
+        : null;
+      super.visitClass(node);
+    }
+
+    @Override
+    protected SourceUnit getSourceUnit() {
+      return source;
+    }
+
+    @Override
+    protected void visitConstructorOrMethod(MethodNode node, boolean isConstructor) {
+      staticContext = node.isStatic();
+      super.visitConstructorOrMethod(node, isConstructor);
+      if (!isConstructor && !node.isAbstract() && !node.isSynthetic() && node.getCode() != null) {
+        node.setCode(withCheckpoint(node.getCode()));
+      }
+    }
+
+    @Override
+    public void visitClosureExpression(ClosureExpression expression) {
+      closureDepth++;
+      super.visitClosureExpression(expression);
+      expression.setCode(withCheckpoint(expression.getCode()));
+      closureDepth--;
+    }
+
+    @Override
+    public void visitForLoop(ForStatement forLoop) {
+      super.visitForLoop(forLoop);
+      forLoop.setLoopBlock(withCheckpoint(forLoop.getLoopBlock()));
+    }
+
+    @Override
+    public void visitWhileLoop(WhileStatement loop) {
+      super.visitWhileLoop(loop);
+      loop.setLoopBlock(withCheckpoint(loop.getLoopBlock()));
+    }
+
+    @Override
+    public void visitDoWhileLoop(DoWhileStatement loop) {
+      super.visitDoWhileLoop(loop);
+      loop.setLoopBlock(withCheckpoint(loop.getLoopBlock()));
+    }
+
+    private Statement withCheckpoint(Statement statement) {
+      if (tokenField == null || staticContext || closureDepth > 0) {
+        return withCheck(statement, directCall(GeneralUtils.classX(INTERRUPT_TOKEN), CHECKPOINT_METHOD));
+      }
+      return withCheck(statement, directCall(GeneralUtils.fieldX(tokenField), CHECK_METHOD));
+    }
+
+    private static MethodCallExpression directCall(Expression receiver, MethodNode target) {
+      var call = GeneralUtils.callX(receiver, target.getName());
+      call.setImplicitThis(false);
+      call.setMethodTarget(target);
+      return call;
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package org.jrx.interpreter.groovy;
+
+//per-run stop flag, scripts poll it through the checkpoints injected by InterruptCheckTransformation.
+//A checkpoint reads the flag only every CHECK_INTERVAL checks, a stopped script runs at most that many checkpoints on
+public class InterruptToken implements AutoCloseable {
+  static final int CHECK_INTERVAL = 1024;
+  private static final ThreadLocal<InterruptToken> CURRENT = new ThreadLocal<>();
+  //shared by all the threads without a bound token, it must not count: every check would write the same field
+  private static final InterruptToken NEVER_INTERRUPTED = new InterruptToken() {
+    @Override
+    public void check() {
+    }
+  };
+
+  private volatile boolean interrupted;
+  //of the thread running the script, an unsynchronized count may only delay the stop
+  private int checksLeft = CHECK_INTERVAL;
+  private InterruptToken previous;
+
+  private InterruptToken() {
+  }
+
+  //binds a new token to the current thread until it's closed
+  public static InterruptToken bind() {
+    var token = new InterruptToken();
+    token.previous = CURRENT.get();
+    CURRENT.set(token);
+    return token;
+  }
+
+  public static InterruptToken current() {
+    var token = CURRENT.get();
+    return token == null ? NEVER_INTERRUPTED : token;
+  }
+
+  public static void checkpoint() {
+    current().check();
+  }
+
+  public void check() {
+    if (--checksLeft > 0) {
+      return;
+    }
+    checksLeft = CHECK_INTERVAL;
+    if (interrupted) {
+      throw new InterruptedError();
+    }
+  }
+
+  //the next check of the thread that sees the write reads the flag at once
+  public void interrupt() {
+    interrupted = true;
+    checksLeft = 0;
+  }
+
+  public boolean isInterrupted() {
+    return interrupted;
+  }
+
+  @Override
+  public void close() {
+    if (previous == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(previous);
+    }
+  }
+
+  //an error, not an exception: a catch (e) or catch (Exception e) of the script must not swallow the stop.
+  //no stack trace, a loop checkpoint may throw it deep in the script
+  public static final class InterruptedError extends Error {
+    private InterruptedError() {
+      super("Script is interrupted", null, false, false);
+    }
+  }
+}
@@ -20,4 +20,4 @@ void testLanguageFeatures() {
   }
   IntStream.range(0, 1).forEach({i -> println("Test lambdas " + i)});
 }
-mainMethod(ctx);
+mainMethod((String) ctx);
@@ -0,0 +1,27 @@
+package org.jrx.interpreter.groovy;
+
+import java.nio.ByteBuffer;
+import javax.script.ScriptException;
+import org.jrx.interpreter.core.ExecutionScheduler;
+import org.jrx.interpreter.core.ScriptBindings;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//the ctx of a run may be of any type, whatever the profile compiles the script with
+class ContextScriptTest {
+
+  @ParameterizedTest
+  @EnumSource(CompilerProfile.class)
+  void ctxOfAnyTypeReachesTheScript(CompilerProfile profile) throws ScriptException {
+    try (var scheduler = new ExecutionScheduler(1);
+         var example = new GroovyNativeApiExample(4, scheduler, profile)
+    ) {
+      var buffer = example.execute(example.prepare("((java.nio.ByteBuffer) ctx).remaining()"),
+        ScriptBindings.ofBuffer("ctx", ByteBuffer.wrap(new byte[3])));
+      assertEquals(3, buffer.await().getValue());
+      var text = example.execute(example.prepare("((String) ctx).length()"), ScriptBindings.of("ctx", "text"));
+      assertEquals(4, text.await().getValue());
+    }
+  }
+}
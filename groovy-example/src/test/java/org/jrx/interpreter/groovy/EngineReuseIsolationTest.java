@@ -0,0 +1,106 @@
+package org.jrx.interpreter.groovy;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.script.ScriptException;
+import org.jrx.interpreter.core.EngineReuse;
+import org.jrx.interpreter.core.ExecutionScheduler;
+import org.jrx.interpreter.core.Jsr223ScriptExecutor;
+import org.jrx.interpreter.core.ScriptBindings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//consecutive runs on the same engine instance must not see anything of each other
+class EngineReuseIsolationTest {
+  private final ExecutionScheduler scheduler = new ExecutionScheduler(1);
+  private Jsr223ScriptExecutor executor;
+
+  @AfterEach
+  void close() {
+    executor.close();
+    scheduler.close();
+  }
+
+  @ParameterizedTest
+  @EnumSource(value = EngineReuse.class, names = {"POOLED", "SHARED"})
+  void bindingsOfARunAreInvisibleToTheNext(EngineReuse reuse) throws ScriptException {
+    executor = createExecutor(reuse);
+
+    assertEquals("first s3cret", run("\"$ctx $secret\"", Map.of("ctx", "first", "secret", "s3cret")));
+    assertEquals("second invisible",
+      run("try { \"$ctx $secret\" } catch (MissingPropertyException e) { \"$ctx invisible\" }", Map.of("ctx", "second")));
+    assertEngineReused();
+  }
+
+  @ParameterizedTest
+  @EnumSource(value = EngineReuse.class, names = {"POOLED", "SHARED"})
+  void variablesOfARunAreInvisibleToTheNext(EngineReuse reuse) throws ScriptException {
+    executor = createExecutor(reuse);
+
+    //an undeclared variable goes to the bindings of the run
+    assertEquals("first", run("leaked = ctx", Map.of("ctx", "first")));
+    assertEquals("invisible", run("try { leaked } catch (MissingPropertyException e) { 'invisible' }", Map.of("ctx", "second")));
+    assertEngineReused();
+  }
+
+  @ParameterizedTest
+  @EnumSource(value = EngineReuse.class, names = {"POOLED", "SHARED"})
+  void rebindingOfCtxIsInvisibleToTheNext(EngineReuse reuse) throws ScriptException {
+    executor = createExecutor(reuse);
+
+    assertEquals("changed", run("ctx = 'changed'", Map.of("ctx", "first")));
+    assertEquals("second", run("ctx", Map.of("ctx", "second")));
+    assertEngineReused();
+  }
+
+  @ParameterizedTest
+  @EnumSource(value = EngineReuse.class, names = {"POOLED", "SHARED"})
+  void methodsOfARunAreInvisibleToTheNext(EngineReuse reuse) throws ScriptException {
+    executor = createExecutor(reuse);
+
+    assertEquals("first", run("def helper() { 'leaked' }\nctx", Map.of("ctx", "first")));
+    assertEquals("invisible", run("try { helper() } catch (MissingMethodException e) { 'invisible' }", Map.of("ctx", "second")));
+    assertEngineReused();
+  }
+
+  //groovy engines are MULTITHREADED, the default reuse must not let a run see the methods of an overlapping one
+  @Test
+  void concurrentRunsDoNotSeeEachOther() throws Exception {
+    try (var concurrentScheduler = new ExecutionScheduler(2)) {
+      executor = new GroovyScriptApiExample(concurrentScheduler);
+      var entered = new CountDownLatch(1);
+      var released = new CountDownLatch(1);
+      var first = executor.execute(executor.prepare("def helper() { 'leaked' }\nentered.countDown()\nreleased.await()\nctx"),
+        ScriptBindings.of("ctx", "first").with("entered", entered).with("released", released));
+      try {
+        assertTrue(entered.await(10, TimeUnit.SECONDS), "The first run did not start");
+        assertEquals("invisible", run("try { helper() } catch (MissingMethodException e) { 'invisible' }", Map.of("ctx", "second")));
+      } finally {
+        released.countDown();
+      }
+      assertEquals("first", first.await().getValue());
+      assertEquals(2, executor.getScriptEngineProvider().created(), "engines created");
+    }
+  }
+
+  private Jsr223ScriptExecutor createExecutor(EngineReuse reuse) {
+    return new GroovyScriptApiExample(scheduler, reuse);
+  }
+
+  private Object run(String script, Map<String, Object> bindings) throws ScriptException {
+    var scriptBindings = ScriptBindings.empty();
+    for (var binding : bindings.entrySet()) {
+      scriptBindings = scriptBindings.with(binding.getKey(), binding.getValue());
+    }
+    return String.valueOf(executor.execute(executor.prepare(script), scriptBindings).await().getValue());
+  }
+
+  private void assertEngineReused() {
+    assertEquals(1, executor.getScriptEngineProvider().created(), "engines created");
+  }
+}
@@ -0,0 +1,82 @@
+package org.jrx.interpreter.groovy;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.script.ScriptException;
+import org.jrx.interpreter.core.ExecutionScheduler;
+import org.jrx.interpreter.core.ScriptBindings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+//a stopped script ends at its next checkpoint, whatever it catches
+class InterruptTokenTest {
+  private static final Duration TIMEOUT = Duration.ofMillis(500);
+
+  @ParameterizedTest
+  @ValueSource(strings = {"catch (e)", "catch (Exception e)", "catch (RuntimeException e)"})
+  void scriptCatchingExceptionsDoesNotCatchTheStop(String catchClause) throws ScriptException {
+    //nearly every checkpoint is inside the try, the one of the outer loop is not
+    var script = "def step() { 1 }\nwhile (true) {\n  try {\n    for (i in 0..<1000) {\n      step()\n    }\n  } "
+      + catchClause + " {\n    caught.set(true)\n  }\n}";
+    var caught = new AtomicBoolean();
+    try (var scheduler = new ExecutionScheduler(1);
+         var example = new GroovyNativeApiExample(4, scheduler)
+    ) {
+      var execution = example.execute(example.prepare(script), ScriptBindings.of("caught", caught)).withTimeout(TIMEOUT);
+      var timedOut = assertThrows(ScriptException.class, execution::await);
+      assertInstanceOf(TimeoutException.class, timedOut.getCause());
+
+      //the only worker is free again, the script is over
+      var next = example.execute(example.prepare("ctx * 2"), ScriptBindings.of("ctx", 21)).withTimeout(Duration.ofSeconds(10));
+      assertEquals(42, next.await().getValue());
+      assertFalse(caught.get(), "The script caught the stop");
+    }
+  }
+
+  @Test
+  void jsr223ScriptIsStoppedThroughTheToken() throws ScriptException {
+    try (var scheduler = new ExecutionScheduler(1);
+         var example = new GroovyScriptApiExample(scheduler)
+    ) {
+      var execution = example.execute(example.prepare("def step() { 1 }\nwhile (true) {\n  step()\n}"), ScriptBindings.empty())
+        .withTimeout(TIMEOUT);
+      var timedOut = assertThrows(ScriptException.class, execution::await);
+      assertInstanceOf(TimeoutException.class, timedOut.getCause());
+
+      var next = example.execute(example.prepare("ctx * 2"), ScriptBindings.of("ctx", 21)).withTimeout(Duration.ofSeconds(10));
+      assertEquals(42, next.await().getValue());
+    }
+  }
+
+  //closures look the token up through the static checkpoint
+  @Test
+  void scriptLoopingInAClosureIsStopped() throws ScriptException {
+    try (var scheduler = new ExecutionScheduler(1);
+         var example = new GroovyNativeApiExample(4, scheduler)
+    ) {
+      var execution = example.execute(example.prepare("def spin = { while (true) { } }\nspin()"), ScriptBindings.empty())
+        .withTimeout(TIMEOUT);
+      var timedOut = assertThrows(ScriptException.class, execution::await);
+      assertInstanceOf(TimeoutException.class, timedOut.getCause());
+
+      var next = example.execute(example.prepare("ctx * 2"), ScriptBindings.of("ctx", 21)).withTimeout(Duration.ofSeconds(10));
+      assertEquals(42, next.await().getValue());
+    }
+  }
+
+  @Test
+  void checkpointThrowsOnlyWhileAnInterruptedTokenIsBound() {
+    InterruptToken.checkpoint();
+    try (var token = InterruptToken.bind()) {
+      token.interrupt();
+      assertThrows(InterruptToken.InterruptedError.class, InterruptToken::checkpoint);
+    }
+    InterruptToken.checkpoint();
+  }
+}
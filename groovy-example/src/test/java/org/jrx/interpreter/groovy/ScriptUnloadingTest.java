@@ -0,0 +1,95 @@
+package org.jrx.interpreter.groovy;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.TimeUnit;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import org.jrx.interpreter.core.ExecutionScheduler;
+import org.jrx.interpreter.core.ScriptBindings;
+import org.jrx.interpreter.core.ScriptExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//what the cache lets go of must be collectable, otherwise every distinct script stays in the metaspace for good
+class ScriptUnloadingTest {
+  private static final int NATIVE_CACHE_SIZE = 4;
+  //the first engine is retired after 256 compilations, after 512 the cache of 256 holds none of its scripts
+  private static final int JSR223_SCRIPTS = 600;
+  private static final int GC_ATTEMPTS = 20;
+
+  private final ExecutionScheduler scheduler = new ExecutionScheduler(1);
+
+  @AfterEach
+  void close() {
+    scheduler.close();
+  }
+
+  @Test
+  void evictedNativeScriptClassIsUnloaded() throws ScriptException, InterruptedException {
+    try (var example = new GroovyNativeApiExample(NATIVE_CACHE_SIZE, scheduler)) {
+      var scriptClass = compileNative(example, "def twice = { it * 2 }\ntwice(ctx.length())");
+      assertNotCollected(scriptClass, "Cached script class");
+
+      for (var i = 0; i < NATIVE_CACHE_SIZE; i++) {
+        run(example, "'other " + i + "'");
+      }
+      assertEquals(1, example.getScriptCache().evictions());
+      assertCollected(scriptClass, "Evicted script class");
+    }
+  }
+
+  @Test
+  void retiredJsr223EngineIsUnloaded() throws ScriptException, InterruptedException {
+    try (var example = new GroovyScriptApiExample(scheduler)) {
+      var engine = compileJsr223(example, "ctx.length()");
+
+      for (var i = 0; i < JSR223_SCRIPTS; i++) {
+        run(example, "'other " + i + "'");
+      }
+      assertTrue(example.getScriptEngineProvider().retired() >= 2, example.getScriptEngineProvider().toString());
+      assertCollected(engine, "Retired engine");
+    }
+  }
+
+  //the references are taken in a frame of their own, nothing in the test method keeps the script reachable
+  private static WeakReference<Class<?>> compileNative(GroovyNativeApiExample example, String script)
+    throws ScriptException {
+    var prepared = example.prepare(script);
+    assertEquals(6, example.execute(prepared, ScriptBindings.of("ctx", "abc")).await().getValue());
+    return new WeakReference<>(prepared.getCompiled(example.getEngineName(), Class.class));
+  }
+
+  private static WeakReference<ScriptEngine> compileJsr223(GroovyScriptApiExample example, String script)
+    throws ScriptException {
+    var prepared = example.prepare(script);
+    assertEquals(3, example.execute(prepared, ScriptBindings.of("ctx", "abc")).await().getValue());
+    return new WeakReference<>(prepared.getCompiled(example.getEngineName(), CompiledScript.class).getEngine());
+  }
+
+  private static void run(ScriptExecutor executor, String script) throws ScriptException {
+    executor.execute(executor.prepare(script), ScriptBindings.empty()).await();
+  }
+
+  private static void assertNotCollected(WeakReference<?> reference, String what) throws InterruptedException {
+    collect(reference);
+    assertNotNull(reference.get(), what + " is collected while still in use");
+  }
+
+  private static void assertCollected(WeakReference<?> reference, String what) throws InterruptedException {
+    collect(reference);
+    assertNull(reference.get(), what + " is still reachable");
+  }
+
+  //a single gc may leave a class loader for the next cycle
+  private static void collect(WeakReference<?> reference) throws InterruptedException {
+    for (var i = 0; i < GC_ATTEMPTS && reference.get() != null; i++) {
+      System.gc();
+      TimeUnit.MILLISECONDS.sleep(50);
+    }
+  }
+}
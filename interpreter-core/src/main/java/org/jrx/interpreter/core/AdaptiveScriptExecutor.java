@@ -0,0 +1,374 @@
+package org.jrx.interpreter.core;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import javax.script.ScriptException;
+
+//routes every script to one of two engines accepting the same source, e.g. BeanShell and Groovy. A script starts on
+//the interpreter, cheap to prepare, and moves to the compiler after promotionThreshold runs or once its runs took
+//promotionTime in total, whichever comes first: the compiler prepares it on a background thread and the route switches
+//to the compiled script in one step. A promoted script that runs slower than it did interpreted, or fails where it
+//never failed interpreted, goes back to the interpreter. The router owns both executors.
+//Side-effect free scripts may opt in to verification: the next interpreted run with a collected output is repeated on
+//the compiler and the route switches only if its output and value are the same. A script with side effects would
+//have them twice, so verification is off by default
+public class AdaptiveScriptExecutor implements ScriptExecutor {
+  public static final int DEFAULT_PROMOTION_THRESHOLD = 16;
+  public static final Duration DEFAULT_PROMOTION_TIME = Duration.ofMillis(200);
+  private static final int DEFAULT_MAX_ROUTES = 1024;
+  private static final String ENGINE_NAME = "adaptive";
+  //of the compiled repetition of a run, the first run on the compiler loads its classes
+  private static final Duration VERIFICATION_TIMEOUT = Duration.ofSeconds(10);
+
+  private final ScriptExecutor interpreter;
+  private final ScriptExecutor compiler;
+  private final int promotionThreshold;
+  private final long promotionNanos;
+  private final boolean verifyPromotions;
+  private final ScriptCache<Route> routes;
+  private final ExecutorService promotionExecutor;
+  private final AtomicInteger pendingPromotions = new AtomicInteger();
+  private final LongAdder promotions = new LongAdder();
+  private final LongAdder failedPromotions = new LongAdder();
+  private final LongAdder revertedPromotions = new LongAdder();
+  private final LongAdder compiledRuns = new LongAdder();
+  private final LongAdder compiledNanos = new LongAdder();
+  //the same runs at the interpreted mean of their scripts
+  private final LongAdder interpretedEstimateNanos = new LongAdder();
+  private final ExecutorMetrics metrics;
+  private volatile boolean closed;
+
+  public AdaptiveScriptExecutor(ScriptExecutor interpreter, ScriptExecutor compiler) {
+    this(interpreter, compiler, DEFAULT_PROMOTION_THRESHOLD, DEFAULT_PROMOTION_TIME, DEFAULT_MAX_ROUTES);
+  }
+
+  public AdaptiveScriptExecutor(ScriptExecutor interpreter, ScriptExecutor compiler, int promotionThreshold,
+                                Duration promotionTime, int maxRoutes) {
+    this(interpreter, compiler, promotionThreshold, promotionTime, maxRoutes, false);
+  }
+
+  //verifyPromotions repeats a run of every promoted script, only for scripts without side effects
+  public AdaptiveScriptExecutor(ScriptExecutor interpreter, ScriptExecutor compiler, int promotionThreshold,
+                                Duration promotionTime, int maxRoutes, boolean verifyPromotions) {
+    if (promotionThreshold <= 0) {
+      throw new IllegalArgumentException("Promotion threshold must be positive, got " + promotionThreshold);
+    }
+    this.interpreter = interpreter;
+    this.compiler = compiler;
+    this.promotionThreshold = promotionThreshold;
+    this.promotionNanos = promotionTime.toNanos();
+    this.verifyPromotions = verifyPromotions;
+    this.routes = new ScriptCache<>(maxRoutes);
+    this.promotionExecutor = Executors.newSingleThreadExecutor(new DaemonThreadFactory("adaptive-promotion"));
+    this.metrics = new ExecutorMetrics(ENGINE_NAME)
+      .cacheGauges("routes", routes)
+      .gauge("promotions", promotions::sum)
+      .gauge("promotions.pending", pendingPromotions::get)
+      .gauge("promotions.failed", failedPromotions::sum)
+      .gauge("promotions.reverted", revertedPromotions::sum)
+      .gauge("promotions.compiledRuns", compiledRuns::sum)
+      .gauge("promotions.savedMillis", () -> (interpretedEstimateNanos.sum() - compiledNanos.sum()) / 1_000_000d)
+      .gauge("promotions.speedup", this::speedup);
+  }
+
+  @Override
+  public String getEngineName() {
+    return ENGINE_NAME;
+  }
+
+  public ScriptExecutor getInterpreter() {
+    return interpreter;
+  }
+
+  public ScriptExecutor getCompiler() {
+    return compiler;
+  }
+
+  public int getPromotionThreshold() {
+    return promotionThreshold;
+  }
+
+  public Duration getPromotionTime() {
+    return Duration.ofNanos(promotionNanos);
+  }
+
+  public boolean isVerifyingPromotions() {
+    return verifyPromotions;
+  }
+
+  public ScriptCache<Route> getRoutes() {
+    return routes;
+  }
+
+  public Route route(PreparedScript script) {
+    return script.getCompiled(ENGINE_NAME, Route.class);
+  }
+
+  //the script is prepared by the interpreter only, a syntax error surfaces here
+  @Override
+  public PreparedScript prepare(String script) throws ScriptException {
+    var startedNanos = System.nanoTime();
+    var hash = ScriptCache.hash(script);
+    var route = routes.get(hash, script, (key, source) -> new Route(interpreter.prepare(source)));
+    return new PreparedScript(ENGINE_NAME, script, hash, route, System.nanoTime() - startedNanos);
+  }
+
+  @Override
+  public ScriptExecution execute(PreparedScript script, ScriptBindings bindings, ScriptOutput output) {
+    Route route;
+    try {
+      route = route(script);
+    } catch (IllegalArgumentException e) {
+      return output.attach(ScriptExecution.failed(script, e));
+    }
+    var target = route.target.get();
+    var interpreted = target == route.interpreted;
+    //a streamed output can't be compared, such runs leave the verification to the next one
+    var candidate = interpreted && output.isCollected() ? route.candidate.getAndSet(null) : null;
+    var execution = (interpreted ? interpreter : compiler).execute(target, bindings, output);
+    execution.getCompletion().whenComplete((result, e) -> {
+      if (result != null) {
+        completed(route, interpreted, result.getStats());
+        if (candidate != null) {
+          verify(route, candidate, bindings, result, output.maxBytes());
+        }
+        return;
+      }
+      if (candidate != null) {
+        route.candidate.set(candidate);
+      }
+      if (!execution.isStopped()) {
+        failed(route, interpreted, target);
+      }
+    });
+    return execution;
+  }
+
+  public long promotions() {
+    return promotions.sum();
+  }
+
+  public long failedPromotions() {
+    return failedPromotions.sum();
+  }
+
+  public long revertedPromotions() {
+    return revertedPromotions.sum();
+  }
+
+  //interpreted over compiled time of the runs on the compiler, above 1 when promotions pay off
+  public double speedup() {
+    var nanos = compiledNanos.sum();
+    return nanos == 0 ? 0 : (double) interpretedEstimateNanos.sum() / nanos;
+  }
+
+  @Override
+  public ExecutorMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    promotionExecutor.shutdownNow();
+    metrics.close();
+    interpreter.close();
+    compiler.close();
+  }
+
+  private void completed(Route route, boolean interpreted, ExecutionStats stats) {
+    if (stats == null) {
+      return;
+    }
+    var nanos = stats.getExecutionNanos();
+    if (interpreted) {
+      route.interpretedNanos.add(nanos);
+      //a slow script is hot after a few runs
+      if (route.interpretedRuns.incrementAndGet() == promotionThreshold
+        || route.tier.get() == Tier.INTERPRETED && route.interpretedNanos.sum() >= promotionNanos) {
+        promote(route);
+      }
+      return;
+    }
+    compiledRuns.increment();
+    compiledNanos.add(nanos);
+    interpretedEstimateNanos.add(route.baselineNanos);
+    route.compiledNanos.add(nanos);
+    //the first compiled runs load classes and wait for the jit, as many runs as the promotion took decide after them
+    var runs = route.compiledRuns.incrementAndGet();
+    if (runs > promotionThreshold) {
+      route.verdictNanos.add(nanos);
+      if (runs == 2L * promotionThreshold && route.verdictNanos.sum() >= route.baselineNanos * promotionThreshold) {
+        demote(route, Tier.REVERTED);
+      }
+    }
+  }
+
+  private void failed(Route route, boolean interpreted, PreparedScript target) {
+    if (interpreted) {
+      route.interpretedFailures.increment();
+    } else if (route.interpretedFailures.sum() == 0 && route.target.get() == target) {
+      //the engines disagree on the source, e.g. a method only the interpreter knows
+      demote(route, Tier.INCOMPATIBLE);
+    }
+  }
+
+  private void promote(Route route) {
+    if (closed || !route.tier.compareAndSet(Tier.INTERPRETED, Tier.PROMOTING)) {
+      return;
+    }
+    pendingPromotions.incrementAndGet();
+    try {
+      promotionExecutor.execute(() -> {
+        var startedNanos = System.nanoTime();
+        try {
+          var compiled = compiler.prepare(route.interpreted.getSource());
+          if (verifyPromotions) {
+            //the tier first, a run may take the candidate at once
+            route.tier.set(Tier.VERIFYING);
+            route.candidate.set(compiled);
+          } else {
+            switchTo(route, compiled);
+          }
+        } catch (ScriptException | RuntimeException e) {
+          reject(route, e);
+        } finally {
+          metrics.record(Phase.COMPILE, startedNanos);
+          pendingPromotions.decrementAndGet();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      //closed meanwhile
+      route.tier.set(Tier.INTERPRETED);
+      pendingPromotions.decrementAndGet();
+    }
+  }
+
+  //the interpreted run is done, its bindings are free for the compiled one. Scripts depending on the time, a random
+  //or a binding they change themselves never match and stay interpreted
+  private void verify(Route route, PreparedScript candidate, ScriptBindings bindings, ScriptResult expected,
+                      long maxBytes) {
+    if (closed) {
+      return;
+    }
+    var execution = compiler.execute(candidate, bindings, ScriptOutput.buffered(maxBytes)).withTimeout(VERIFICATION_TIMEOUT);
+    execution.getCompletion().whenComplete((result, e) -> {
+      if (closed) {
+        return;
+      }
+      if (result == null) {
+        reject(route, e instanceof Exception ? (Exception) e : new ScriptException(String.valueOf(e)));
+      } else if (!expected.getOutput().equals(result.getOutput())) {
+        reject(route, new ScriptException("Compiled run printed " + result.getOutput().length()
+          + " characters differing from the " + expected.getOutput().length() + " of the interpreted one"));
+      } else if (!Objects.equals(expected.getValue(), result.getValue())) {
+        reject(route, new ScriptException("Compiled run returned " + result.getValue()
+          + " instead of " + expected.getValue() + " of the interpreted one"));
+      } else {
+        switchTo(route, candidate);
+      }
+    });
+  }
+
+  private void switchTo(Route route, PreparedScript compiled) {
+    route.baselineNanos = route.interpretedMeanNanos();
+    route.target.set(compiled);
+    route.tier.set(Tier.COMPILED);
+    promotions.increment();
+  }
+
+  private void reject(Route route, Exception reason) {
+    route.promotionFailure = reason;
+    route.tier.set(Tier.INCOMPATIBLE);
+    failedPromotions.increment();
+  }
+
+  private void demote(Route route, Tier tier) {
+    if (route.tier.compareAndSet(Tier.COMPILED, tier)) {
+      route.target.set(route.interpreted);
+      revertedPromotions.increment();
+    }
+  }
+
+  public enum Tier {
+    INTERPRETED,
+    //the compiler prepares the script, runs stay on the interpreter meanwhile
+    PROMOTING,
+    //compiled, waits for a run to compare with the interpreted one, only when promotions are verified
+    VERIFYING,
+    COMPILED,
+    //compiled runs were slower
+    REVERTED,
+    //the compiler rejected the script, its run differed from the interpreted one or it failed a run the interpreter
+    //never failed
+    INCOMPATIBLE
+  }
+
+  public static final class Route {
+    private final PreparedScript interpreted;
+    private final AtomicReference<PreparedScript> target;
+    //the compiled script until a run verifies it, taken by the run comparing it
+    private final AtomicReference<PreparedScript> candidate = new AtomicReference<>();
+    private final AtomicReference<Tier> tier = new AtomicReference<>(Tier.INTERPRETED);
+    private final AtomicLong interpretedRuns = new AtomicLong();
+    private final LongAdder interpretedNanos = new LongAdder();
+    private final LongAdder interpretedFailures = new LongAdder();
+    private final AtomicLong compiledRuns = new AtomicLong();
+    private final LongAdder compiledNanos = new LongAdder();
+    //of the compiled runs after the warmup
+    private final LongAdder verdictNanos = new LongAdder();
+    //the interpreted mean at the promotion, the gain is measured against it
+    private volatile long baselineNanos;
+    private volatile Exception promotionFailure;
+
+    private Route(PreparedScript interpreted) {
+      this.interpreted = interpreted;
+      this.target = new AtomicReference<>(interpreted);
+    }
+
+    public Tier getTier() {
+      return tier.get();
+    }
+
+    //the script of the engine the next run goes to
+    public PreparedScript getTarget() {
+      return target.get();
+    }
+
+    public long getInterpretedRuns() {
+      return interpretedRuns.get();
+    }
+
+    public long getCompiledRuns() {
+      return compiledRuns.get();
+    }
+
+    public long interpretedMeanNanos() {
+      var runs = interpretedRuns.get();
+      return runs == 0 ? 0 : interpretedNanos.sum() / runs;
+    }
+
+    public long compiledMeanNanos() {
+      var runs = compiledRuns.get();
+      return runs == 0 ? 0 : compiledNanos.sum() / runs;
+    }
+
+    public Optional<Exception> getPromotionFailure() {
+      return Optional.ofNullable(promotionFailure);
+    }
+
+    @Override
+    public String toString() {
+      return "Route{tier=" + tier.get() + ", interpretedRuns=" + interpretedRuns.get() + ", interpretedMeanNanos="
+        + interpretedMeanNanos() + ", compiledRuns=" + compiledRuns.get() + ", compiledMeanNanos=" + compiledMeanNanos() + '}';
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package org.jrx.interpreter.core;
+
+import javax.script.ScriptException;
+
+//outcome of one context of a batch, a failed item doesn't affect the others
+public final class BatchResult {
+  private final long index;
+  private final Object context;
+  private final ScriptResult result;
+  private final ScriptException error;
+
+  BatchResult(long index, Object context, ScriptResult result, ScriptException error) {
+    this.index = index;
+    this.context = context;
+    this.result = result;
+    this.error = error;
+  }
+
+  public long getIndex() {
+    return index;
+  }
+
+  public Object getContext() {
+    return context;
+  }
+
+  public boolean isSuccess() {
+    return error == null;
+  }
+
+  //null when the item failed
+  public ScriptResult getResult() {
+    return result;
+  }
+
+  //null when the item succeeded
+  public ScriptException getError() {
+    return error;
+  }
+
+  @Override
+  public String toString() {
+    return "BatchResult{index=" + index + ", " + (isSuccess() ? "result=" + result : "error=" + error) + '}';
+  }
+}
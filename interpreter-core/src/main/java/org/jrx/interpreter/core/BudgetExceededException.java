@@ -0,0 +1,44 @@
+package org.jrx.interpreter.core;
+
+import javax.script.ScriptException;
+
+public class BudgetExceededException extends ScriptException {
+  private static final long serialVersionUID = 1L;
+
+  private final Resource resource;
+  private final long limit;
+  private final long used;
+
+  public BudgetExceededException(Resource resource, long limit, long used) {
+    super("Script exceeded the " + resource.description + " budget: used " + used + " of " + limit + " " + resource.unit);
+    this.resource = resource;
+    this.limit = limit;
+    this.used = used;
+  }
+
+  public Resource getResource() {
+    return resource;
+  }
+
+  public long getLimit() {
+    return limit;
+  }
+
+  public long getUsed() {
+    return used;
+  }
+
+  public enum Resource {
+    CPU_TIME("cpu time", "ns"),
+    ALLOCATED_BYTES("allocation", "bytes"),
+    WALL_TIME("wall time", "ns");
+
+    private final String description;
+    private final String unit;
+
+    Resource(String description, String unit) {
+      this.description = description;
+      this.unit = unit;
+    }
+  }
+}
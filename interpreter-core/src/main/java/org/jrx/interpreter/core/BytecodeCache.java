@@ -0,0 +1,166 @@
+package org.jrx.interpreter.core;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+//class files of compiled scripts in a local directory, one file per script.
+//writers publish a complete temp file with an atomic rename, so concurrent writers and readers never see a partial entry
+public class BytecodeCache {
+  private static final int MAGIC = 0x4A525842;
+  private static final int FORMAT_VERSION = 1;
+  private static final String SUFFIX = ".classes";
+
+  private final Path directory;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder writes = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+
+  public BytecodeCache(Path directory) {
+    this.directory = directory;
+  }
+
+  //script hash, engine version and everything in the compiler configuration that changes the bytecode
+  public static String key(String scriptHash, String engineVersion, String configuration) {
+    return ScriptCache.hash(String.join("\n", scriptHash, engineVersion, configuration));
+  }
+
+  //class name to class file, mapped into memory. The first class is the one the entry was stored with first
+  public Optional<Map<String, ByteBuffer>> load(String key) {
+    var path = entryPath(key);
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      var entry = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      var classes = read(entry);
+      hits.increment();
+      return Optional.of(classes);
+    } catch (NoSuchFileException e) {
+      misses.increment();
+      return Optional.empty();
+    } catch (IOException | IllegalArgumentException | BufferUnderflowException e) {
+      //a broken entry is recompiled and overwritten
+      failures.increment();
+      misses.increment();
+      return Optional.empty();
+    }
+  }
+
+  //a failed write only costs a recompilation next time
+  public boolean store(String key, Map<String, byte[]> classes) {
+    var path = entryPath(key);
+    try {
+      Files.createDirectories(path.getParent());
+      var temp = Files.createTempFile(path.getParent(), key, ".tmp");
+      try {
+        try (var channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+          var entry = write(classes);
+          while (entry.hasRemaining()) {
+            channel.write(entry);
+          }
+          channel.force(false);
+        }
+        move(temp, path);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+      writes.increment();
+      return true;
+    } catch (IOException e) {
+      failures.increment();
+      return false;
+    }
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  public long hits() {
+    return hits.sum();
+  }
+
+  public long misses() {
+    return misses.sum();
+  }
+
+  public long writes() {
+    return writes.sum();
+  }
+
+  public long failures() {
+    return failures.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "BytecodeCache{directory=" + directory + ", hits=" + hits() + ", misses=" + misses() + ", writes=" + writes()
+      + ", failures=" + failures() + '}';
+  }
+
+  private Path entryPath(String key) {
+    //two levels keep directories small
+    return directory.resolve(key.substring(0, 2)).resolve(key + SUFFIX);
+  }
+
+  private static void move(Path temp, Path path) throws IOException {
+    try {
+      Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static Map<String, ByteBuffer> read(ByteBuffer entry) {
+    if (entry.getInt() != MAGIC || entry.getInt() != FORMAT_VERSION) {
+      throw new IllegalArgumentException("Not a bytecode cache entry");
+    }
+    //a class takes two lengths at least
+    var count = length(entry, 2 * Integer.BYTES);
+    var classes = new LinkedHashMap<String, ByteBuffer>();
+    for (var i = 0; i < count; i++) {
+      var name = new byte[length(entry, 1)];
+      entry.get(name);
+      var length = length(entry, 1);
+      var classFile = entry.slice().limit(length);
+      entry.position(entry.position() + length);
+      classes.put(new String(name, StandardCharsets.UTF_8), classFile);
+    }
+    return classes;
+  }
+
+  //a length read from a corrupt entry, unchecked, would be a negative array size or an allocation of gigabytes.
+  //what it counts takes at least bytesPerItem of the rest of the entry
+  private static int length(ByteBuffer entry, int bytesPerItem) {
+    var length = entry.getInt();
+    if (length < 0 || length > entry.remaining() / bytesPerItem) {
+      throw new IllegalArgumentException("Length " + length + " at " + (entry.position() - Integer.BYTES)
+        + " is out of the entry");
+    }
+    return length;
+  }
+
+  private static ByteBuffer write(Map<String, byte[]> classes) {
+    var names = new LinkedHashMap<byte[], byte[]>();
+    var size = 3 * Integer.BYTES;
+    for (var entry : classes.entrySet()) {
+      var name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+      names.put(name, entry.getValue());
+      size += 2 * Integer.BYTES + name.length + entry.getValue().length;
+    }
+    var buffer = ByteBuffer.allocate(size).putInt(MAGIC).putInt(FORMAT_VERSION).putInt(classes.size());
+    names.forEach((name, classFile) -> buffer.putInt(name.length).put(name).putInt(classFile.length).put(classFile));
+    return buffer.flip();
+  }
+}
@@ -0,0 +1,29 @@
+package org.jrx.interpreter.core;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//defines the classes of one compiled script, e.g. straight from the mapped BytecodeCache entry
+public class BytecodeClassLoader extends ClassLoader {
+  private final Map<String, ByteBuffer> classFiles;
+
+  static {
+    registerAsParallelCapable();
+  }
+
+  public BytecodeClassLoader(ClassLoader parent, Map<String, ByteBuffer> classFiles) {
+    super(parent);
+    this.classFiles = new ConcurrentHashMap<>(classFiles);
+  }
+
+  @Override
+  protected Class<?> findClass(String name) throws ClassNotFoundException {
+    //defined once, the loader remembers the class
+    var classFile = classFiles.remove(name);
+    if (classFile == null) {
+      throw new ClassNotFoundException(name);
+    }
+    return defineClass(name, classFile.duplicate(), null);
+  }
+}
@@ -0,0 +1,23 @@
+package org.jrx.interpreter.core;
+
+import javax.script.ScriptEngineFactory;
+
+public enum EngineReuse {
+  //a new engine for every run
+  NONE,
+  //one engine for all threads, requires a thread-safe engine
+  SHARED,
+  //an engine per worker thread
+  PER_THREAD,
+  //an engine is checked out by one run at a time and returned afterwards
+  POOLED;
+
+  public static final String THREADING_PARAMETER = "THREADING";
+
+  //only a STATELESS engine keeps nothing of a run. MULTITHREADED and THREAD-ISOLATED engines may be called
+  //concurrently, but keep the state of the runs in the engine, e.g. groovy's global closures, which is released after
+  //each run: overlapping runs on one engine would see and clear each other's. Null means no guarantees at all
+  public static EngineReuse forFactory(ScriptEngineFactory factory) {
+    return "STATELESS".equals(factory.getParameter(THREADING_PARAMETER)) ? SHARED : POOLED;
+  }
+}
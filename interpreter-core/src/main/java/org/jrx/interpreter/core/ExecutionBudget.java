@@ -0,0 +1,65 @@
+package org.jrx.interpreter.core;
+
+import java.time.Duration;
+
+//limits of a single execution, enforced by sampling the threads running the script
+public final class ExecutionBudget {
+  private static final long UNLIMITED = Long.MAX_VALUE;
+  private static final ExecutionBudget UNLIMITED_BUDGET = new ExecutionBudget(UNLIMITED, UNLIMITED, UNLIMITED);
+
+  private final long maxCpuNanos;
+  private final long maxAllocatedBytes;
+  private final long maxWallNanos;
+
+  private ExecutionBudget(long maxCpuNanos, long maxAllocatedBytes, long maxWallNanos) {
+    this.maxCpuNanos = maxCpuNanos;
+    this.maxAllocatedBytes = maxAllocatedBytes;
+    this.maxWallNanos = maxWallNanos;
+  }
+
+  public static ExecutionBudget unlimited() {
+    return UNLIMITED_BUDGET;
+  }
+
+  public ExecutionBudget withCpuTime(Duration maxCpuTime) {
+    return new ExecutionBudget(positive(maxCpuTime.toNanos()), maxAllocatedBytes, maxWallNanos);
+  }
+
+  public ExecutionBudget withAllocatedBytes(long maxAllocatedBytes) {
+    return new ExecutionBudget(maxCpuNanos, positive(maxAllocatedBytes), maxWallNanos);
+  }
+
+  //wall time counts from the start of the run, queueing is limited by ScriptExecution.withTimeout
+  public ExecutionBudget withWallTime(Duration maxWallTime) {
+    return new ExecutionBudget(maxCpuNanos, maxAllocatedBytes, positive(maxWallTime.toNanos()));
+  }
+
+  public long getMaxCpuNanos() {
+    return maxCpuNanos;
+  }
+
+  public long getMaxAllocatedBytes() {
+    return maxAllocatedBytes;
+  }
+
+  public long getMaxWallNanos() {
+    return maxWallNanos;
+  }
+
+  public boolean isUnlimited() {
+    return maxCpuNanos == UNLIMITED && maxAllocatedBytes == UNLIMITED && maxWallNanos == UNLIMITED;
+  }
+
+  private static long positive(long limit) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Budget limit must be positive, got " + limit);
+    }
+    return limit;
+  }
+
+  @Override
+  public String toString() {
+    return "ExecutionBudget{maxCpuNanos=" + maxCpuNanos + ", maxAllocatedBytes=" + maxAllocatedBytes
+      + ", maxWallNanos=" + maxWallNanos + '}';
+  }
+}
@@ -0,0 +1,258 @@
+package org.jrx.interpreter.core;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ExecutionScheduler implements Executor, AutoCloseable {
+  public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+  private static final long KEEP_ALIVE_SECONDS = 60;
+
+  private final ExecutorService workers;
+  private final int parallelism;
+  private final int queueCapacity;
+  private final Map<String, TenantLane> tenants = new ConcurrentHashMap<>();
+  private final AtomicInteger active = new AtomicInteger();
+  private final LongAdder submitted = new LongAdder();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+
+  public ExecutionScheduler(int parallelism) {
+    this(parallelism, DEFAULT_QUEUE_CAPACITY, new DaemonThreadFactory("script-worker"));
+  }
+
+  //thread factory is the hook for custom (e.g. virtual) threads, parallelism stays bounded by the pool size
+  public ExecutionScheduler(int parallelism, int queueCapacity, ThreadFactory threadFactory) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be positive, got " + parallelism);
+    }
+    if (queueCapacity < 1) {
+      throw new IllegalArgumentException("Queue capacity must be positive, got " + queueCapacity);
+    }
+    var pool = new ThreadPoolExecutor(parallelism, parallelism, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+      new ArrayBlockingQueue<>(queueCapacity), threadFactory, (command, executor) -> {
+      throw new RejectedExecutionException("Scheduler is overloaded or shut down: " + this);
+    });
+    pool.allowCoreThreadTimeOut(true);
+    this.workers = pool;
+    this.parallelism = parallelism;
+    this.queueCapacity = queueCapacity;
+  }
+
+  private ExecutionScheduler(ExecutorService workers, int queueCapacity) {
+    this.workers = workers;
+    this.parallelism = Integer.MAX_VALUE;
+    this.queueCapacity = queueCapacity;
+  }
+
+  public static ExecutionScheduler shared() {
+    return SharedHolder.SHARED;
+  }
+
+  //a thread per execution, only tenant lanes limit the concurrency. Available since Java 21
+  public static ExecutionScheduler virtualThreads() {
+    try {
+      var workers = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      return new ExecutionScheduler(workers, DEFAULT_QUEUE_CAPACITY);
+    } catch (ReflectiveOperationException e) {
+      throw new UnsupportedOperationException("Virtual threads are not supported by " + Runtime.version(), e);
+    }
+  }
+
+  public static boolean isVirtualThreadsSupported() {
+    try {
+      Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    submitted.increment();
+    try {
+      workers.execute(() -> {
+        active.incrementAndGet();
+        try {
+          command.run();
+        } finally {
+          active.decrementAndGet();
+          completed.increment();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      throw e;
+    }
+  }
+
+  //executions of the same tenant share at most maxConcurrency workers, the rest wait in the tenant queue.
+  //A lane lives while the tenant has executions, the returned executor stays usable after its lane is gone
+  public Executor forTenant(String tenant, int maxConcurrency) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("Tenant concurrency must be positive, got " + maxConcurrency);
+    }
+    var lane = tenants.get(tenant);
+    if (lane != null) {
+      checkConcurrency(lane, maxConcurrency);
+    }
+    return command -> {
+      while (!lane(tenant, maxConcurrency).offer(command)) {
+        //the lane went idle since the lookup and is out of the map already, the next lookup creates a new one
+      }
+    };
+  }
+
+  private TenantLane lane(String tenant, int maxConcurrency) {
+    return checkConcurrency(tenants.computeIfAbsent(tenant, name -> new TenantLane(name, maxConcurrency)), maxConcurrency);
+  }
+
+  private static TenantLane checkConcurrency(TenantLane lane, int maxConcurrency) {
+    if (lane.maxConcurrency != maxConcurrency) {
+      throw new IllegalArgumentException("Tenant " + lane.tenant + " is already limited to " + lane.maxConcurrency);
+    }
+    return lane;
+  }
+
+  public int parallelism() {
+    return parallelism;
+  }
+
+  public int active() {
+    return active.get();
+  }
+
+  //tenants with running or pending executions
+  public int tenants() {
+    return tenants.size();
+  }
+
+  public long submitted() {
+    return submitted.sum();
+  }
+
+  public long completed() {
+    return completed.sum();
+  }
+
+  public long rejected() {
+    return rejected.sum();
+  }
+
+  //accepted by the workers but not started yet
+  public long queued() {
+    return Math.max(0, submitted() - rejected() - completed() - active());
+  }
+
+  @Override
+  public void close() {
+    workers.shutdownNow();
+  }
+
+  @Override
+  public String toString() {
+    return "ExecutionScheduler{parallelism=" + parallelism + ", active=" + active() + ", submitted=" + submitted()
+      + ", completed=" + completed() + ", rejected=" + rejected() + ", tenants=" + tenants.values() + '}';
+  }
+
+  private final class TenantLane {
+    private final String tenant;
+    private final int maxConcurrency;
+    private final Queue<Runnable> pending = new ArrayDeque<>();
+    private int running;
+    private boolean removed;
+
+    private TenantLane(String tenant, int maxConcurrency) {
+      this.tenant = tenant;
+      this.maxConcurrency = maxConcurrency;
+    }
+
+    //false once the lane is removed
+    private boolean offer(Runnable command) {
+      synchronized (this) {
+        if (removed) {
+          return false;
+        }
+        if (running >= maxConcurrency) {
+          if (pending.size() >= queueCapacity) {
+            rejected.increment();
+            throw new RejectedExecutionException("Tenant " + tenant + " queue is full: " + this);
+          }
+          pending.add(command);
+          return true;
+        }
+        running++;
+      }
+      try {
+        dispatch(command);
+      } catch (RejectedExecutionException e) {
+        synchronized (this) {
+          running--;
+          removeIfIdle();
+        }
+        throw e;
+      }
+      return true;
+    }
+
+    private void dispatch(Runnable command) {
+      ExecutionScheduler.this.execute(() -> {
+        try {
+          command.run();
+        } finally {
+          runNext();
+        }
+      });
+    }
+
+    private void runNext() {
+      while (true) {
+        Runnable command;
+        synchronized (this) {
+          command = pending.poll();
+          if (command == null) {
+            running--;
+            removeIfIdle();
+            return;
+          }
+        }
+        try {
+          dispatch(command);
+          return;
+        } catch (RejectedExecutionException e) {
+          //the lane has already accepted the command, run it on the current worker instead of losing it
+          command.run();
+        }
+      }
+    }
+
+    //an unbounded number of tenant ids must not keep a lane each, guarded by this
+    private void removeIfIdle() {
+      if (running == 0 && pending.isEmpty()) {
+        removed = true;
+        tenants.remove(tenant, this);
+      }
+    }
+
+    @Override
+    public synchronized String toString() {
+      return tenant + "{running=" + running + "/" + maxConcurrency + ", pending=" + pending.size() + '}';
+    }
+  }
+
+  private static final class SharedHolder {
+    private static final ExecutionScheduler SHARED = new ExecutionScheduler(Runtime.getRuntime().availableProcessors());
+  }
+}
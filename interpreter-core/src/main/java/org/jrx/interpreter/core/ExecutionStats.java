@@ -0,0 +1,44 @@
+package org.jrx.interpreter.core;
+
+public final class ExecutionStats {
+  private final long prepareNanos;
+  private final long queuedNanos;
+  private final long executionNanos;
+  private final long cpuNanos;
+  private final long allocatedBytes;
+
+  //cpu and allocation are -1 when the jvm doesn't measure them per thread
+  public ExecutionStats(long prepareNanos, long queuedNanos, long executionNanos, long cpuNanos, long allocatedBytes) {
+    this.prepareNanos = prepareNanos;
+    this.queuedNanos = queuedNanos;
+    this.executionNanos = executionNanos;
+    this.cpuNanos = cpuNanos;
+    this.allocatedBytes = allocatedBytes;
+  }
+
+  public long getPrepareNanos() {
+    return prepareNanos;
+  }
+
+  public long getQueuedNanos() {
+    return queuedNanos;
+  }
+
+  public long getExecutionNanos() {
+    return executionNanos;
+  }
+
+  public long getCpuNanos() {
+    return cpuNanos;
+  }
+
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  @Override
+  public String toString() {
+    return "ExecutionStats{prepareNanos=" + prepareNanos + ", queuedNanos=" + queuedNanos
+      + ", executionNanos=" + executionNanos + ", cpuNanos=" + cpuNanos + ", allocatedBytes=" + allocatedBytes + '}';
+  }
+}
@@ -0,0 +1,51 @@
+package org.jrx.interpreter.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+//one sampling task checks the budgets of all the running executions, it stops while nothing is watched
+final class ExecutionWatchdog {
+  private static final long SAMPLE_INTERVAL_MILLIS = 10;
+  private static final Map<ScriptExecution, ExecutionBudget> WATCHED = new ConcurrentHashMap<>();
+  private static final ScheduledThreadPoolExecutor SCHEDULER =
+    new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("script-watchdog"));
+  private static final Object LOCK = new Object();
+  private static ScheduledFuture<?> sampling;
+
+  private ExecutionWatchdog() {
+  }
+
+  static void watch(ScriptExecution execution, ExecutionBudget budget) {
+    WATCHED.put(execution, budget);
+    synchronized (LOCK) {
+      if (sampling == null) {
+        sampling = SCHEDULER.scheduleWithFixedDelay(ExecutionWatchdog::sample,
+          SAMPLE_INTERVAL_MILLIS, SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  static void unwatch(ScriptExecution execution) {
+    WATCHED.remove(execution);
+  }
+
+  private static void sample() {
+    WATCHED.forEach((execution, budget) -> {
+      try {
+        execution.checkBudget(budget);
+      } catch (RuntimeException e) {
+        //a failed check must not cancel the sampling of the other executions
+        execution.stop(e);
+      }
+    });
+    synchronized (LOCK) {
+      if (WATCHED.isEmpty() && sampling != null) {
+        sampling.cancel(false);
+        sampling = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package org.jrx.interpreter.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+import java.util.stream.Collectors;
+
+//phase latencies and gauges of a single executor. Gauges are added before register(), the registry publishes them once.
+//Publication is up to the owner of the executor: getMetrics().register() publishes them until the executor is closed,
+//an executor nobody closes would stay reachable from the registry
+public final class ExecutorMetrics implements ExecutorMetricsMXBean, AutoCloseable {
+  private static final AtomicLong IDS = new AtomicLong();
+  private static volatile MetricsRegistry registry = new JmxMetricsRegistry();
+
+  private final String engineName;
+  private final long id = IDS.incrementAndGet();
+  private final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+  private final Map<String, DoubleSupplier> gauges = Collections.synchronizedMap(new LinkedHashMap<>());
+  private MetricsRegistry registeredIn;
+
+  public ExecutorMetrics(String engineName) {
+    this.engineName = engineName;
+    Arrays.setAll(phases, i -> new LatencyHistogram());
+  }
+
+  //applies to the executors created afterwards
+  public static void setRegistry(MetricsRegistry metricsRegistry) {
+    registry = metricsRegistry;
+  }
+
+  public static MetricsRegistry getRegistry() {
+    return registry;
+  }
+
+  //records the time since startedNanos and returns the current nanoTime, the start of the next phase
+  public long record(Phase phase, long startedNanos) {
+    var now = System.nanoTime();
+    phases[phase.ordinal()].record(now - startedNanos);
+    return now;
+  }
+
+  public LatencyHistogram histogram(Phase phase) {
+    return phases[phase.ordinal()];
+  }
+
+  public ExecutorMetrics gauge(String name, DoubleSupplier value) {
+    gauges.put(name, value);
+    return this;
+  }
+
+  public ExecutorMetrics cacheGauges(String name, ScriptCache<?> cache) {
+    return gauge(name + ".size", cache::size)
+      .gauge(name + ".hits", cache::hits)
+      .gauge(name + ".misses", cache::misses)
+      .gauge(name + ".hitRatio", () -> ratio(cache.hits(), cache.hits() + cache.misses()))
+      .gauge(name + ".evictions", cache::evictions);
+  }
+
+  public ExecutorMetrics engineGauges(ScriptEngineProvider engineProvider) {
+    return gauge("engines.idle", engineProvider::idle)
+      .gauge("engines.created", engineProvider::created)
+      .gauge("engines.reused", engineProvider::reused)
+      .gauge("engines.discarded", engineProvider::discarded)
+      .gauge("engines.retired", engineProvider::retired);
+  }
+
+  //shared by all the executors: stopped executions which still hold their thread, see ScriptExecution.runaways
+  public ExecutorMetrics runawayGauge() {
+    return gauge("executions.runaway", ScriptExecution::runaways);
+  }
+
+  //other executors don't expose their state
+  public ExecutorMetrics schedulerGauges(Executor executor) {
+    if (!(executor instanceof ExecutionScheduler)) {
+      return this;
+    }
+    var scheduler = (ExecutionScheduler) executor;
+    return gauge("scheduler.active", scheduler::active)
+      .gauge("scheduler.occupancy", () -> ratio(scheduler.active(), scheduler.parallelism()))
+      .gauge("scheduler.queued", scheduler::queued)
+      .gauge("scheduler.rejected", scheduler::rejected);
+  }
+
+  public ExecutorMetrics register() {
+    var metricsRegistry = registry;
+    metricsRegistry.register(this);
+    synchronized (this) {
+      registeredIn = metricsRegistry;
+    }
+    return this;
+  }
+
+  @Override
+  public void close() {
+    MetricsRegistry metricsRegistry;
+    synchronized (this) {
+      metricsRegistry = registeredIn;
+      registeredIn = null;
+    }
+    if (metricsRegistry != null) {
+      metricsRegistry.unregister(this);
+    }
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  @Override
+  public String getEngineName() {
+    return engineName;
+  }
+
+  @Override
+  public List<PhaseStats> getPhases() {
+    return Arrays.stream(Phase.values()).map(phase -> PhaseStats.of(phase, histogram(phase))).collect(Collectors.toList());
+  }
+
+  @Override
+  public Map<String, Double> getGauges() {
+    synchronized (gauges) {
+      var values = new LinkedHashMap<String, Double>();
+      gauges.forEach((name, value) -> values.put(name, value.getAsDouble()));
+      return values;
+    }
+  }
+
+  @Override
+  public void resetPhases() {
+    Arrays.stream(phases).forEach(LatencyHistogram::reset);
+  }
+
+  private static double ratio(long part, long total) {
+    return total == 0 ? 0 : (double) part / total;
+  }
+
+  @Override
+  public String toString() {
+    return "ExecutorMetrics{engineName=" + engineName + ", id=" + id + ", phases=" + getPhases() + ", gauges=" + getGauges() + '}';
+  }
+}
@@ -0,0 +1,16 @@
+package org.jrx.interpreter.core;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ExecutorMetricsMXBean {
+
+  String getEngineName();
+
+  List<PhaseStats> getPhases();
+
+  //cache hits and sizes, pool occupancy, scheduler queue and rejections
+  Map<String, Double> getGauges();
+
+  void resetPhases();
+}
@@ -0,0 +1,46 @@
+package org.jrx.interpreter.core;
+
+import java.lang.management.ManagementFactory;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class JmxMetricsRegistry implements MetricsRegistry {
+  private static final String DOMAIN = "org.jrx.interpreter";
+
+  private final MBeanServer server;
+
+  public JmxMetricsRegistry() {
+    this(ManagementFactory.getPlatformMBeanServer());
+  }
+
+  public JmxMetricsRegistry(MBeanServer server) {
+    this.server = server;
+  }
+
+  @Override
+  public void register(ExecutorMetrics metrics) {
+    try {
+      server.registerMBean(metrics, objectName(metrics));
+    } catch (JMException e) {
+      throw new IllegalStateException("Can not register metrics of " + metrics.getEngineName(), e);
+    }
+  }
+
+  @Override
+  public void unregister(ExecutorMetrics metrics) {
+    try {
+      server.unregisterMBean(objectName(metrics));
+    } catch (InstanceNotFoundException e) {
+      //already unregistered
+    } catch (JMException e) {
+      throw new IllegalStateException("Can not unregister metrics of " + metrics.getEngineName(), e);
+    }
+  }
+
+  public static ObjectName objectName(ExecutorMetrics metrics) throws JMException {
+    return new ObjectName(DOMAIN + ":type=ScriptExecutor,engine=" + ObjectName.quote(metrics.getEngineName())
+      + ",id=" + metrics.getId());
+  }
+}
@@ -0,0 +1,239 @@
+package org.jrx.interpreter.core;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+import javax.script.SimpleScriptContext;
+
+public class Jsr223ScriptExecutor implements ScriptExecutor {
+  private static final int DEFAULT_MAX_IDLE_ENGINES = Runtime.getRuntime().availableProcessors();
+  private static final int DEFAULT_COMPILED_CACHE_SIZE = 256;
+  //a generation of compiled scripts per engine, by the time it is retired the cache has evicted most of them
+  private static final int DEFAULT_COMPILATIONS_PER_ENGINE = DEFAULT_COMPILED_CACHE_SIZE;
+
+  private final String engineName;
+  private final ScriptEngineProvider scriptEngineProvider;
+  //compiled scripts are bound to the engine instance that compiled them
+  private final ScriptCache<CompiledScript> compiledScripts = new ScriptCache<>(DEFAULT_COMPILED_CACHE_SIZE);
+  private final Executor executor;
+  private final StopSwitch stopSwitch;
+  private final ExecutorMetrics metrics;
+  //compiles to a form no engine instance owns, e.g. a parsed syntax tree, null compiles with the engine
+  private final ScriptCache.Compiler<CompiledScript> detachedCompiler;
+  private volatile boolean compilationUnsupported;
+
+  public Jsr223ScriptExecutor(String engineName, ScriptEngineFactory scriptEngineFactory, Executor executor,
+                              StopSwitch stopSwitch) {
+    this(engineName, scriptEngineFactory, EngineReuse.forFactory(scriptEngineFactory), executor, stopSwitch);
+  }
+
+  public Jsr223ScriptExecutor(String engineName, ScriptEngineFactory scriptEngineFactory, EngineReuse engineReuse,
+                              Executor executor, StopSwitch stopSwitch) {
+    this(engineName, scriptEngineFactory, engineReuse, executor, stopSwitch, null);
+  }
+
+  public Jsr223ScriptExecutor(String engineName, ScriptEngineFactory scriptEngineFactory, EngineReuse engineReuse,
+                              Executor executor, StopSwitch stopSwitch,
+                              ScriptCache.Compiler<CompiledScript> detachedCompiler) {
+    this.engineName = engineName;
+    this.scriptEngineProvider = new ScriptEngineProvider(scriptEngineFactory, engineReuse, DEFAULT_MAX_IDLE_ENGINES,
+      DEFAULT_COMPILATIONS_PER_ENGINE, this::engineRetired);
+    this.executor = executor;
+    this.stopSwitch = stopSwitch;
+    this.detachedCompiler = detachedCompiler;
+    this.metrics = new ExecutorMetrics(engineName)
+      .cacheGauges("compiledScripts", compiledScripts)
+      .engineGauges(scriptEngineProvider)
+      .runawayGauge()
+      .schedulerGauges(executor);
+  }
+
+  public String executeScript(String script, String ctxVariable) throws ScriptException {
+    return toLegacyOutput(execute(prepare(script), ScriptBindings.of("ctx", ctxVariable)).await());
+  }
+
+  public CompletableFuture<String> executeScriptAsync(String script, String ctxVariable) {
+    return executeScriptAsync(script, ctxVariable, null);
+  }
+
+  public CompletableFuture<String> executeScriptAsync(String script, String ctxVariable, Duration timeout) {
+    PreparedScript preparedScript;
+    try {
+      preparedScript = prepare(script);
+    } catch (ScriptException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    var execution = execute(preparedScript, ScriptBindings.of("ctx", ctxVariable));
+    if (timeout != null) {
+      execution.withTimeout(timeout);
+    }
+    return execution.toCompletableFuture(Jsr223ScriptExecutor::toLegacyOutput);
+  }
+
+  @Override
+  public String getEngineName() {
+    return engineName;
+  }
+
+  @Override
+  public PreparedScript prepare(String script) throws ScriptException {
+    var startedNanos = System.nanoTime();
+    var hash = ScriptCache.hash(script);
+    validate(hash, script);
+    var validatedNanos = metrics.record(Phase.VALIDATION, startedNanos);
+    CompiledScript compiledScript = null;
+    if (detachedCompiler != null) {
+      compiledScript = compiledScripts.get(hash, script, detachedCompiler);
+    } else if (scriptEngineProvider.getReuse() == EngineReuse.SHARED || scriptEngineProvider.getReuse() == EngineReuse.POOLED) {
+      //a throwaway engine is not worth compiling for, the engine of the caller thread never runs the script
+      try (var lease = scriptEngineProvider.acquire()) {
+        compiledScript = compile(lease, script, hash);
+      }
+    }
+    if (compiledScript != null) {
+      metrics.record(Phase.COMPILE, validatedNanos);
+    }
+    return new PreparedScript(engineName, script, hash, compiledScript, System.nanoTime() - startedNanos);
+  }
+
+  @Override
+  public ScriptExecution execute(PreparedScript script, ScriptBindings bindings, ScriptOutput output) {
+    CompiledScript preparedCompiledScript;
+    try {
+      preparedCompiledScript = script.getCompiled(engineName, CompiledScript.class);
+    } catch (IllegalArgumentException | ClassCastException e) {
+      return output.attach(ScriptExecution.failed(script, e));
+    }
+    return output.attach(ScriptExecution.submit(script, executor, execution -> {
+      var phaseStartedNanos = System.nanoTime();
+      try (var lease = scriptEngineProvider.acquire();
+           var out = new PrintWriter(output.open(execution), true, StandardCharsets.UTF_8)
+      ) {
+        //a stopped script may leave the engine in any state, it's never reused
+        execution.onCancel(lease::discard);
+        var compiledScript = preparedCompiledScript;
+        //a detached script runs on any engine, any other is compiled once by each engine running it
+        if (compiledScript == null || detachedCompiler == null && compiledScript.getEngine() != lease.engine()) {
+          compiledScript = compile(lease, script.getSource(), script.getHash());
+          //engines without compilation parse the source as a part of the execution
+          if (compiledScript != null) {
+            phaseStartedNanos = metrics.record(Phase.COMPILE, phaseStartedNanos);
+          }
+        }
+        //the engine is reused, so all the per-run state lives in a fresh context
+        var context = createScriptContext(out, bindings.asMap());
+        phaseStartedNanos = metrics.record(Phase.CONTEXT_SETUP, phaseStartedNanos);
+        Object value;
+        try (var stop = bindStop(execution)) {
+          value = compiledScript != null ? compiledScript.eval(context) : lease.engine().eval(script.getSource(), context);
+        } finally {
+          releaseContext(context);
+          releaseEngineState(lease.engine());
+        }
+        phaseStartedNanos = metrics.record(Phase.EXECUTION, phaseStartedNanos);
+        out.flush();
+        var result = new ScriptResult(output.collected(), value);
+        metrics.record(Phase.OUTPUT_COLLECTION, phaseStartedNanos);
+        return result;
+      }
+    }).stopOn(stopSwitch));
+  }
+
+  private CompiledScript compile(ScriptEngineProvider.Lease lease, String script, String hash) throws ScriptException {
+    if (compilationUnsupported || !(lease.engine() instanceof Compilable) || scriptEngineProvider.getReuse() == EngineReuse.NONE) {
+      return null;
+    }
+    var compilable = (Compilable) lease.engine();
+    try {
+      return compiledScripts.get(lease.engineId() + ":" + hash, script, (key, source) -> {
+        var compiled = compilable.compile(source);
+        lease.recordCompilation();
+        return compiled;
+      });
+    } catch (UnsupportedOperationException e) {
+      compilationUnsupported = true;
+      return null;
+    } catch (Error e) {
+      //a failure of this compilation, e.g. OutOfMemoryError, says nothing about the engine
+      if (!isUnimplemented(e)) {
+        throw e;
+      }
+      compilationUnsupported = true;
+      return null;
+    }
+  }
+
+  //some engines declare Compilable without implementing it, e.g. BeanShell throws Error("unimplemented")
+  private static boolean isUnimplemented(Error e) {
+    return e.getClass() == Error.class && "unimplemented".equals(e.getMessage());
+  }
+
+  private static String toLegacyOutput(ScriptResult result) {
+    return result.getOutput() + result.getValue();
+  }
+
+  //the engine gets no more runs, except the ones of its scripts still cached or prepared
+  protected void engineRetired(ScriptEngine engine) {
+  }
+
+  //most jsr-223 engines ignore interruption, a stopped script of theirs runs on until it ends, see
+  //ExecutorMetrics.runawayGauge. Engines which poll a stop flag of their own bind it around the evaluation
+  protected AutoCloseable bindStop(ScriptExecution execution) {
+    return () -> {
+    };
+  }
+
+  //a ScriptValidator caches its verdict by the hash
+  protected void validate(String hash, String script) throws ScriptException {
+  }
+
+  @Override
+  public ExecutorMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public void close() {
+    metrics.close();
+  }
+
+  public ScriptEngineProvider getScriptEngineProvider() {
+    return scriptEngineProvider;
+  }
+
+  public ScriptCache<CompiledScript> getCompiledScripts() {
+    return compiledScripts;
+  }
+
+  //engines may keep the context of the last run, e.g. groovy call sites cache a metaclass capturing it.
+  //the output and the bindings of a finished run must not stay reachable from the classes of the script
+  protected void releaseContext(ScriptContext context) {
+    context.setWriter(Writer.nullWriter());
+    context.setErrorWriter(Writer.nullWriter());
+    context.setBindings(new SimpleBindings(), ScriptContext.ENGINE_SCOPE);
+  }
+
+  //whatever a run leaves in the engine itself must not reach the next run of a reused engine
+  protected void releaseEngineState(ScriptEngine engine) {
+  }
+
+  protected ScriptContext createScriptContext(Writer out, Map<String, Object> variables) {
+    var context = new SimpleScriptContext();
+    context.setWriter(out);
+    context.setErrorWriter(out);
+    context.setBindings(new SimpleBindings(new HashMap<>(variables)), ScriptContext.ENGINE_SCOPE);
+    return context;
+  }
+}
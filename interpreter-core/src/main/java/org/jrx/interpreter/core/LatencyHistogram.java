@@ -0,0 +1,80 @@
+package org.jrx.interpreter.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+//power of two buckets: recording is a few atomic increments without allocation, percentiles are accurate within 2x
+public final class LatencyHistogram {
+  private static final int BUCKETS = Long.SIZE + 1;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  public void record(long nanos) {
+    var value = Math.max(nanos, 0);
+    buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(value));
+    count.increment();
+    totalNanos.add(value);
+    if (value > maxNanos.get()) {
+      maxNanos.accumulateAndGet(value, Math::max);
+    }
+  }
+
+  public long count() {
+    return count.sum();
+  }
+
+  public long totalNanos() {
+    return totalNanos.sum();
+  }
+
+  public long maxNanos() {
+    return maxNanos.get();
+  }
+
+  public double meanNanos() {
+    var count = count();
+    return count == 0 ? 0 : (double) totalNanos() / count;
+  }
+
+  //upper bound of the bucket holding the percentile, capped by the max
+  public long percentileNanos(double percentile) {
+    var counts = new long[BUCKETS];
+    var total = 0L;
+    for (var i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+      total += counts[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    var rank = (long) Math.ceil(percentile / 100 * total);
+    var seen = 0L;
+    for (var i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        var upperBound = i == Long.SIZE ? Long.MAX_VALUE : (1L << i) - 1;
+        return Math.min(upperBound, maxNanos());
+      }
+    }
+    return maxNanos();
+  }
+
+  public void reset() {
+    for (var i = 0; i < BUCKETS; i++) {
+      buckets.set(i, 0);
+    }
+    count.reset();
+    totalNanos.reset();
+    maxNanos.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return "LatencyHistogram{count=" + count() + ", meanNanos=" + (long) meanNanos() + ", p50Nanos=" + percentileNanos(50)
+      + ", p99Nanos=" + percentileNanos(99) + ", maxNanos=" + maxNanos() + '}';
+  }
+}
@@ -0,0 +1,9 @@
+package org.jrx.interpreter.core;
+
+//publishes the metrics of every executor, e.g. to JMX or to an application metrics library
+public interface MetricsRegistry {
+
+  void register(ExecutorMetrics metrics);
+
+  void unregister(ExecutorMetrics metrics);
+}
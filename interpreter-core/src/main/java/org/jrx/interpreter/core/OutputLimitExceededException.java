@@ -0,0 +1,18 @@
+package org.jrx.interpreter.core;
+
+import javax.script.ScriptException;
+
+public class OutputLimitExceededException extends ScriptException {
+  private static final long serialVersionUID = 1L;
+
+  private final long maxBytes;
+
+  public OutputLimitExceededException(long maxBytes) {
+    super("Script output exceeded the limit of " + maxBytes + " bytes");
+    this.maxBytes = maxBytes;
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+}
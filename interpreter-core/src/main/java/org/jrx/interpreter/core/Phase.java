@@ -0,0 +1,11 @@
+package org.jrx.interpreter.core;
+
+public enum Phase {
+  //source checks and rewrites before compilation
+  VALIDATION,
+  COMPILE,
+  //bindings, engine leases, shells and context bridges
+  CONTEXT_SETUP,
+  EXECUTION,
+  OUTPUT_COLLECTION
+}
@@ -0,0 +1,63 @@
+package org.jrx.interpreter.core;
+
+import java.beans.ConstructorProperties;
+import java.util.concurrent.TimeUnit;
+
+//point in time view of a phase histogram, the attribute type of ExecutorMetricsMXBean.getPhases
+public final class PhaseStats {
+  private final String phase;
+  private final long count;
+  private final double meanMicros;
+  private final double p50Micros;
+  private final double p99Micros;
+  private final double maxMicros;
+
+  @ConstructorProperties({"phase", "count", "meanMicros", "p50Micros", "p99Micros", "maxMicros"})
+  public PhaseStats(String phase, long count, double meanMicros, double p50Micros, double p99Micros, double maxMicros) {
+    this.phase = phase;
+    this.count = count;
+    this.meanMicros = meanMicros;
+    this.p50Micros = p50Micros;
+    this.p99Micros = p99Micros;
+    this.maxMicros = maxMicros;
+  }
+
+  static PhaseStats of(Phase phase, LatencyHistogram histogram) {
+    return new PhaseStats(phase.name(), histogram.count(), toMicros(histogram.meanNanos()),
+      toMicros(histogram.percentileNanos(50)), toMicros(histogram.percentileNanos(99)), toMicros(histogram.maxNanos()));
+  }
+
+  private static double toMicros(double nanos) {
+    return nanos / TimeUnit.MICROSECONDS.toNanos(1);
+  }
+
+  public String getPhase() {
+    return phase;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public double getMeanMicros() {
+    return meanMicros;
+  }
+
+  public double getP50Micros() {
+    return p50Micros;
+  }
+
+  public double getP99Micros() {
+    return p99Micros;
+  }
+
+  public double getMaxMicros() {
+    return maxMicros;
+  }
+
+  @Override
+  public String toString() {
+    return "PhaseStats{phase=" + phase + ", count=" + count + ", meanMicros=" + meanMicros + ", p50Micros=" + p50Micros
+      + ", p99Micros=" + p99Micros + ", maxMicros=" + maxMicros + '}';
+  }
+}
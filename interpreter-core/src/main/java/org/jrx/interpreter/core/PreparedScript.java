@@ -0,0 +1,54 @@
+package org.jrx.interpreter.core;
+
+public final class PreparedScript {
+  private final String engineName;
+  private final String source;
+  private final String hash;
+  private final Object compiled;
+  private final long prepareNanos;
+
+  public PreparedScript(String engineName, String source, Object compiled, long prepareNanos) {
+    this(engineName, source, ScriptCache.hash(source), compiled, prepareNanos);
+  }
+
+  //the source is hashed once per prepare, a script of several MB takes milliseconds to hash
+  public PreparedScript(String engineName, String source, String hash, Object compiled, long prepareNanos) {
+    this.engineName = engineName;
+    this.source = source;
+    this.hash = hash;
+    this.compiled = compiled;
+    this.prepareNanos = prepareNanos;
+  }
+
+  public String getEngineName() {
+    return engineName;
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  public String getHash() {
+    return hash;
+  }
+
+  public long getPrepareNanos() {
+    return prepareNanos;
+  }
+
+  public <T> T getCompiled(String expectedEngineName, Class<T> type) {
+    requireEngine(expectedEngineName);
+    return type.cast(compiled);
+  }
+
+  public void requireEngine(String expectedEngineName) {
+    if (!engineName.equals(expectedEngineName)) {
+      throw new IllegalArgumentException("Script is prepared by " + engineName + ", can not run it with " + expectedEngineName);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "PreparedScript{engine=" + engineName + ", hash=" + hash + '}';
+  }
+}
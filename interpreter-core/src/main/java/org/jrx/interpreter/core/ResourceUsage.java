@@ -0,0 +1,81 @@
+package org.jrx.interpreter.core;
+
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+//cpu time and allocation of the threads an execution runs on, counted from the moment each thread is tracked
+final class ResourceUsage {
+  private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+  private static final boolean CPU_TIME_SUPPORTED = THREADS.isThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+  private static final boolean ALLOCATION_SUPPORTED = THREADS.isThreadAllocatedMemorySupported()
+    && THREADS.isThreadAllocatedMemoryEnabled();
+  private static final long UNSUPPORTED = -1;
+
+  private final List<TrackedThread> threads = new CopyOnWriteArrayList<>();
+
+  void track(Thread thread) {
+    var threadId = thread.getId();
+    if (threads.stream().noneMatch(tracked -> tracked.threadId == threadId)) {
+      threads.add(new TrackedThread(threadId));
+    }
+  }
+
+  boolean isTracking() {
+    return !threads.isEmpty();
+  }
+
+  long cpuNanos() {
+    if (!CPU_TIME_SUPPORTED) {
+      return UNSUPPORTED;
+    }
+    var total = 0L;
+    for (var thread : threads) {
+      total += thread.sampleCpuNanos();
+    }
+    return total;
+  }
+
+  long allocatedBytes() {
+    if (!ALLOCATION_SUPPORTED) {
+      return UNSUPPORTED;
+    }
+    var total = 0L;
+    for (var thread : threads) {
+      total += thread.sampleAllocatedBytes();
+    }
+    return total;
+  }
+
+  //a terminated thread reports -1, it keeps counting with its last sample
+  private static final class TrackedThread {
+    private final long threadId;
+    private final long baseCpuNanos;
+    private final long baseAllocatedBytes;
+    private volatile long cpuNanos;
+    private volatile long allocatedBytes;
+
+    private TrackedThread(long threadId) {
+      this.threadId = threadId;
+      this.baseCpuNanos = CPU_TIME_SUPPORTED ? THREADS.getThreadCpuTime(threadId) : 0;
+      this.baseAllocatedBytes = ALLOCATION_SUPPORTED ? THREADS.getThreadAllocatedBytes(threadId) : 0;
+    }
+
+    private long sampleCpuNanos() {
+      var current = THREADS.getThreadCpuTime(threadId);
+      if (current >= 0 && baseCpuNanos >= 0) {
+        cpuNanos = current - baseCpuNanos;
+      }
+      return cpuNanos;
+    }
+
+    private long sampleAllocatedBytes() {
+      var current = THREADS.getThreadAllocatedBytes(threadId);
+      if (current >= 0 && baseAllocatedBytes >= 0) {
+        allocatedBytes = current - baseAllocatedBytes;
+      }
+      return allocatedBytes;
+    }
+  }
+}
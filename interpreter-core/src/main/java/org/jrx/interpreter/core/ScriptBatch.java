@@ -0,0 +1,84 @@
+package org.jrx.interpreter.core;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.script.ScriptException;
+
+//keeps up to maxInFlight executions submitted ahead of the consumer and hands the results out in the input order
+final class ScriptBatch implements Iterator<BatchResult> {
+  private final ScriptExecutor executor;
+  private final PreparedScript script;
+  private final Iterator<?> contexts;
+  private final int maxInFlight;
+  private final Queue<Item> inFlight = new ArrayDeque<>();
+  private long submitted;
+
+  private ScriptBatch(ScriptExecutor executor, PreparedScript script, Iterator<?> contexts, int maxInFlight) {
+    this.executor = executor;
+    this.script = script;
+    this.contexts = contexts;
+    this.maxInFlight = maxInFlight;
+  }
+
+  static Stream<BatchResult> stream(ScriptExecutor executor, PreparedScript script, Stream<?> contexts, int maxInFlight) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("Batch must allow at least one execution in flight, got " + maxInFlight);
+    }
+    var batch = new ScriptBatch(executor, script, contexts.iterator(), maxInFlight);
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(batch, Spliterator.ORDERED | Spliterator.NONNULL), false)
+      .onClose(batch::cancel)
+      .onClose(contexts::close);
+  }
+
+  @Override
+  public boolean hasNext() {
+    fill();
+    return !inFlight.isEmpty();
+  }
+
+  @Override
+  public BatchResult next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    var item = inFlight.remove();
+    //submit the next context before blocking on this one
+    fill();
+    try {
+      return new BatchResult(item.index, item.context, item.execution.await(), null);
+    } catch (ScriptException e) {
+      return new BatchResult(item.index, item.context, null, e);
+    }
+  }
+
+  private void fill() {
+    while (inFlight.size() < maxInFlight && contexts.hasNext()) {
+      var context = contexts.next();
+      inFlight.add(new Item(submitted++, context, executor.execute(script, ScriptBindings.of("ctx", context))));
+    }
+  }
+
+  //a stream closed before the end doesn't leave its executions running
+  private void cancel() {
+    inFlight.forEach(item -> item.execution.cancel());
+    inFlight.clear();
+  }
+
+  private static final class Item {
+    private final long index;
+    private final Object context;
+    private final ScriptExecution execution;
+
+    private Item(long index, Object context, ScriptExecution execution) {
+      this.index = index;
+      this.context = context;
+      this.execution = execution;
+    }
+  }
+}
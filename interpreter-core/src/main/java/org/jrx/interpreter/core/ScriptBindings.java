@@ -0,0 +1,63 @@
+package org.jrx.interpreter.core;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+public final class ScriptBindings {
+  private static final ScriptBindings EMPTY = new ScriptBindings(Map.of());
+
+  private final Map<String, Object> values;
+
+  private ScriptBindings(Map<String, Object> values) {
+    this.values = values;
+  }
+
+  public static ScriptBindings empty() {
+    return EMPTY;
+  }
+
+  public static ScriptBindings of(String name, Object value) {
+    return EMPTY.with(name, value);
+  }
+
+  public static ScriptBindings ofBuffer(String name, ByteBuffer buffer) {
+    return EMPTY.withBuffer(name, buffer);
+  }
+
+  //values are handed to the engines by reference, nothing is copied or converted to a string
+  public ScriptBindings with(String name, Object value) {
+    var copy = new LinkedHashMap<>(values);
+    copy.put(name, value);
+    return new ScriptBindings(Collections.unmodifiableMap(copy));
+  }
+
+  //a read-only view sharing the content of the buffer: a script reads the caller's bytes but can't change them,
+  //position and limit of the view are its own
+  public ScriptBindings withBuffer(String name, ByteBuffer buffer) {
+    return with(name, buffer.asReadOnlyBuffer());
+  }
+
+  public <T> Optional<T> get(String name, Class<T> type) {
+    var value = values.get(name);
+    if (value != null && !type.isInstance(value)) {
+      throw new IllegalArgumentException("Binding " + name + " is " + value.getClass().getName() + ", not " + type.getName());
+    }
+    return Optional.ofNullable(type.cast(value));
+  }
+
+  public boolean contains(String name) {
+    return values.containsKey(name);
+  }
+
+  public Map<String, Object> asMap() {
+    return values;
+  }
+
+  @Override
+  public String toString() {
+    return "ScriptBindings" + values.keySet();
+  }
+}
@@ -0,0 +1,153 @@
+package org.jrx.interpreter.core;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javax.script.ScriptException;
+
+public class ScriptCache<V> {
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private final int maxSize;
+  private final Map<String, CachedEntry<V>> entries;
+  private final Consumer<? super V> evictionListener;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder compileNanos = new LongAdder();
+  private final LongAdder savedCompileNanos = new LongAdder();
+
+  public ScriptCache(int maxSize) {
+    this(maxSize, value -> {
+    });
+  }
+
+  //the listener gets every value the cache drops, e.g. to release what keeps the classes of a script loaded.
+  //it is called under the cache lock
+  public ScriptCache(int maxSize, Consumer<? super V> evictionListener) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("Cache size must be positive, got " + maxSize);
+    }
+    this.maxSize = maxSize;
+    this.evictionListener = evictionListener;
+    //access order makes the eldest entry the least recently used one
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CachedEntry<V>> eldest) {
+        if (size() > ScriptCache.this.maxSize) {
+          evictions.increment();
+          ScriptCache.this.evictionListener.accept(eldest.getValue().value);
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  public V get(String source, Compiler<V> compiler) throws ScriptException {
+    return get(hash(source), source, compiler);
+  }
+
+  public V get(String key, String source, Compiler<V> compiler) throws ScriptException {
+    synchronized (entries) {
+      var cached = entries.get(key);
+      if (cached != null) {
+        hits.increment();
+        savedCompileNanos.add(cached.compileNanos);
+        return cached.value;
+      }
+    }
+    misses.increment();
+    //compiling outside of the lock: a concurrent miss on the same key compiles twice, but the first result wins
+    var startedNanos = System.nanoTime();
+    var compiled = new CachedEntry<>(compiler.compile(key, source), System.nanoTime() - startedNanos);
+    compileNanos.add(compiled.compileNanos);
+    synchronized (entries) {
+      var existing = entries.putIfAbsent(key, compiled);
+      if (existing != null) {
+        evictionListener.accept(compiled.value);
+        return existing.value;
+      }
+      return compiled.value;
+    }
+  }
+
+  public void clear() {
+    synchronized (entries) {
+      entries.values().forEach(entry -> evictionListener.accept(entry.value));
+      entries.clear();
+    }
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  public int maxSize() {
+    return maxSize;
+  }
+
+  public long hits() {
+    return hits.sum();
+  }
+
+  public long misses() {
+    return misses.sum();
+  }
+
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  public long compileNanos() {
+    return compileNanos.sum();
+  }
+
+  //sum of the compile times of the cached entries on every hit
+  public long savedCompileNanos() {
+    return savedCompileNanos.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "ScriptCache{size=" + size() + ", maxSize=" + maxSize + ", hits=" + hits() + ", misses=" + misses()
+      + ", evictions=" + evictions() + ", compileMs=" + TimeUnit.NANOSECONDS.toMillis(compileNanos())
+      + ", savedCompileMs=" + TimeUnit.NANOSECONDS.toMillis(savedCompileNanos()) + '}';
+  }
+
+  public static String hash(String source) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+      var hex = new char[digest.length * 2];
+      for (var i = 0; i < digest.length; i++) {
+        hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+        hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xF];
+      }
+      return new String(hex);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+
+  private static final class CachedEntry<V> {
+    private final V value;
+    private final long compileNanos;
+
+    private CachedEntry(V value, long compileNanos) {
+      this.value = value;
+      this.compileNanos = compileNanos;
+    }
+  }
+
+  @FunctionalInterface
+  public interface Compiler<V> {
+    V compile(String key, String source) throws ScriptException;
+  }
+}
@@ -0,0 +1,203 @@
+package org.jrx.interpreter.core;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+
+public class ScriptEngineProvider {
+  public static final int UNLIMITED_COMPILATIONS = Integer.MAX_VALUE;
+
+  private final ScriptEngineFactory factory;
+  private final EngineReuse reuse;
+  private final int maxCompilationsPerEngine;
+  private final Consumer<ScriptEngine> retirementListener;
+  private final BlockingQueue<ManagedEngine> idle;
+  private final ThreadLocal<ManagedEngine> threadEngines = new ThreadLocal<>();
+  private final AtomicLong engineIds = new AtomicLong();
+  private final LongAdder created = new LongAdder();
+  private final LongAdder reused = new LongAdder();
+  private final LongAdder discarded = new LongAdder();
+  private final LongAdder retired = new LongAdder();
+  private volatile ManagedEngine sharedEngine;
+
+  public ScriptEngineProvider(ScriptEngineFactory factory, EngineReuse reuse, int maxIdle) {
+    this(factory, reuse, maxIdle, UNLIMITED_COMPILATIONS, engine -> {
+    });
+  }
+
+  //an engine keeps the classes of every script it has compiled in its own class loader. After maxCompilationsPerEngine
+  //it is retired and the next lease gets a new engine, the retired one with all its classes is unloaded
+  //as soon as nothing refers to its compiled scripts. The listener may drop the caches of the engine runtime
+  public ScriptEngineProvider(ScriptEngineFactory factory, EngineReuse reuse, int maxIdle, int maxCompilationsPerEngine,
+                              Consumer<ScriptEngine> retirementListener) {
+    if (maxIdle < 1) {
+      throw new IllegalArgumentException("Max idle engines must be positive, got " + maxIdle);
+    }
+    if (maxCompilationsPerEngine < 1) {
+      throw new IllegalArgumentException("Max compilations per engine must be positive, got " + maxCompilationsPerEngine);
+    }
+    this.factory = factory;
+    this.reuse = reuse;
+    this.maxCompilationsPerEngine = maxCompilationsPerEngine;
+    this.retirementListener = retirementListener;
+    this.idle = new LinkedBlockingQueue<>(maxIdle);
+  }
+
+  public Lease acquire() {
+    ManagedEngine engine;
+    switch (reuse) {
+      case SHARED:
+        engine = sharedEngine;
+        if (engine == null) {
+          synchronized (this) {
+            engine = sharedEngine;
+            if (engine == null) {
+              engine = create();
+              sharedEngine = engine;
+              return new Lease(engine);
+            }
+          }
+        }
+        break;
+      case PER_THREAD:
+        engine = threadEngines.get();
+        if (engine == null) {
+          engine = create();
+          threadEngines.set(engine);
+          return new Lease(engine);
+        }
+        break;
+      case POOLED:
+        engine = idle.poll();
+        if (engine == null) {
+          return new Lease(create());
+        }
+        break;
+      default:
+        return new Lease(create());
+    }
+    reused.increment();
+    return new Lease(engine);
+  }
+
+  public EngineReuse getReuse() {
+    return reuse;
+  }
+
+  public int idle() {
+    return idle.size();
+  }
+
+  public long created() {
+    return created.sum();
+  }
+
+  public long reused() {
+    return reused.sum();
+  }
+
+  public long discarded() {
+    return discarded.sum();
+  }
+
+  public long retired() {
+    return retired.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "ScriptEngineProvider{engine=" + factory.getEngineName() + ", reuse=" + reuse + ", idle=" + idle() + ", created=" + created()
+      + ", reused=" + reused() + ", discarded=" + discarded() + ", retired=" + retired() + '}';
+  }
+
+  private ManagedEngine create() {
+    created.increment();
+    return new ManagedEngine(engineIds.incrementAndGet(), factory.getScriptEngine());
+  }
+
+  private void retire(ManagedEngine engine) {
+    synchronized (this) {
+      if (engine.retired) {
+        return;
+      }
+      engine.retired = true;
+      if (sharedEngine == engine) {
+        sharedEngine = null;
+      }
+    }
+    retired.increment();
+    retirementListener.accept(engine.engine);
+  }
+
+  private void release(ManagedEngine engine, boolean discard) {
+    if (engine.retired) {
+      //a per-thread engine is released by its own thread
+      if (reuse == EngineReuse.PER_THREAD) {
+        threadEngines.remove();
+      }
+      return;
+    }
+    //engine may be left in a broken state by an interrupted run, shared engines are thread-safe and kept
+    if (discard && reuse != EngineReuse.SHARED) {
+      discarded.increment();
+      if (reuse == EngineReuse.PER_THREAD) {
+        threadEngines.remove();
+      }
+      return;
+    }
+    if (reuse == EngineReuse.POOLED && !idle.offer(engine)) {
+      discarded.increment();
+    }
+  }
+
+  private static final class ManagedEngine {
+    private final long id;
+    private final ScriptEngine engine;
+    private final AtomicInteger compilations = new AtomicInteger();
+    private volatile boolean retired;
+
+    private ManagedEngine(long id, ScriptEngine engine) {
+      this.id = id;
+      this.engine = engine;
+    }
+  }
+
+  public class Lease implements AutoCloseable {
+    private final ManagedEngine engine;
+    private volatile boolean discard;
+
+    private Lease(ManagedEngine engine) {
+      this.engine = engine;
+    }
+
+    //stable for the lifetime of the engine, the key for anything bound to the engine instance
+    public long engineId() {
+      return engine.id;
+    }
+
+    public ScriptEngine engine() {
+      return engine.engine;
+    }
+
+    public void discard() {
+      discard = true;
+    }
+
+    //the engine has compiled a script, it is retired when it reaches the limit
+    public void recordCompilation() {
+      if (engine.compilations.incrementAndGet() >= maxCompilationsPerEngine) {
+        retire(engine);
+      }
+    }
+
+    @Override
+    public void close() {
+      release(engine, discard);
+    }
+  }
+}
@@ -0,0 +1,245 @@
+package org.jrx.interpreter.core;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import javax.script.ScriptException;
+
+public final class ScriptExecution {
+  private static final ScheduledThreadPoolExecutor TIMEOUT_SCHEDULER = createTimeoutScheduler();
+  private static final AtomicInteger RUNAWAYS = new AtomicInteger();
+
+  private final PreparedScript script;
+  private final CompletableFuture<ScriptResult> result = new CompletableFuture<>();
+  private final List<Runnable> cancellationListeners = new CopyOnWriteArrayList<>();
+  private final long submittedNanos = System.nanoTime();
+  private final ResourceUsage resourceUsage = new ResourceUsage();
+  private volatile boolean stopped;
+  private volatile long startedNanos;
+  private Thread runner;
+  private boolean runaway;
+
+  private ScriptExecution(PreparedScript script) {
+    this.script = script;
+  }
+
+  public static ScriptExecution submit(PreparedScript script, Executor executor, Task task) {
+    var execution = new ScriptExecution(script);
+    try {
+      executor.execute(() -> execution.run(task));
+    } catch (RejectedExecutionException e) {
+      execution.result.completeExceptionally(new ScriptException(e));
+    }
+    return execution;
+  }
+
+  public static ScriptExecution failed(PreparedScript script, Exception e) {
+    var execution = new ScriptExecution(script);
+    execution.result.completeExceptionally(toScriptException(e));
+    return execution;
+  }
+
+  public PreparedScript getScript() {
+    return script;
+  }
+
+  public CompletionStage<ScriptResult> getCompletion() {
+    return result.minimalCompletionStage();
+  }
+
+  public CompletableFuture<ScriptResult> toCompletableFuture() {
+    return toCompletableFuture(Function.identity());
+  }
+
+  //cancelling the returned future cancels the execution as well
+  public <T> CompletableFuture<T> toCompletableFuture(Function<ScriptResult, T> mapper) {
+    var future = result.thenApply(mapper);
+    future.whenComplete((value, e) -> {
+      if (future.isCancelled()) {
+        cancel();
+      }
+    });
+    return future;
+  }
+
+  public ScriptExecution withTimeout(Duration timeout) {
+    if (!result.isDone()) {
+      var timeoutTask = TIMEOUT_SCHEDULER.schedule(
+        () -> stop(new TimeoutException("Execution of " + script + " timed out after " + timeout)),
+        timeout.toNanos(), TimeUnit.NANOSECONDS);
+      result.whenComplete((value, e) -> timeoutTask.cancel(false));
+    }
+    return this;
+  }
+
+  //the watchdog stops the execution with BudgetExceededException once it runs out of any resource
+  public ScriptExecution withBudget(ExecutionBudget budget) {
+    if (!result.isDone() && !budget.isUnlimited()) {
+      ExecutionWatchdog.watch(this, budget);
+      result.whenComplete((value, e) -> ExecutionWatchdog.unwatch(this));
+    }
+    return this;
+  }
+
+  //engines that run the script on a thread of their own report it to count its resources
+  public void trackThread(Thread thread) {
+    resourceUsage.track(thread);
+  }
+
+  public ScriptExecution stopOn(StopSwitch stopSwitch) {
+    if (!result.isDone()) {
+      var unsubscribe = stopSwitch.subscribe(this::cancel);
+      result.whenComplete((value, e) -> unsubscribe.run());
+    }
+    return this;
+  }
+
+  public boolean isDone() {
+    return result.isDone();
+  }
+
+  public boolean isCancelled() {
+    return result.isCancelled();
+  }
+
+  //true when the execution is cancelled or stopped for any other reason before completion
+  public boolean isStopped() {
+    return stopped;
+  }
+
+  public boolean cancel() {
+    return stop(new CancellationException("Execution of " + script + " is cancelled"));
+  }
+
+  //completes the execution exceptionally with the given reason and stops the script
+  public boolean stop(Throwable reason) {
+    if (!result.completeExceptionally(reason)) {
+      return false;
+    }
+    stopped = true;
+    synchronized (this) {
+      if (runner != null) {
+        runner.interrupt();
+        runaway = true;
+        RUNAWAYS.incrementAndGet();
+      }
+    }
+    cancellationListeners.forEach(Runnable::run);
+    return true;
+  }
+
+  //engines that don't react to thread interruption register their own way to stop the script
+  public void onCancel(Runnable listener) {
+    cancellationListeners.add(listener);
+    if (stopped && cancellationListeners.remove(listener)) {
+      listener.run();
+    }
+  }
+
+  void checkBudget(ExecutionBudget budget) {
+    if (result.isDone() || !resourceUsage.isTracking()) {
+      return;
+    }
+    var wallNanos = System.nanoTime() - startedNanos;
+    if (wallNanos > budget.getMaxWallNanos()) {
+      stop(new BudgetExceededException(BudgetExceededException.Resource.WALL_TIME, budget.getMaxWallNanos(), wallNanos));
+      return;
+    }
+    var cpuNanos = resourceUsage.cpuNanos();
+    if (cpuNanos > budget.getMaxCpuNanos()) {
+      stop(new BudgetExceededException(BudgetExceededException.Resource.CPU_TIME, budget.getMaxCpuNanos(), cpuNanos));
+      return;
+    }
+    var allocatedBytes = resourceUsage.allocatedBytes();
+    if (allocatedBytes > budget.getMaxAllocatedBytes()) {
+      stop(new BudgetExceededException(BudgetExceededException.Resource.ALLOCATED_BYTES, budget.getMaxAllocatedBytes(), allocatedBytes));
+    }
+  }
+
+  //stopped executions whose task still holds its thread, a script that ignores both the interrupt and the
+  //cancellation listeners of its engine keeps it until it ends
+  static int runaways() {
+    return RUNAWAYS.get();
+  }
+
+  public ScriptResult await() throws ScriptException {
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      cancel();
+      throw new ScriptException(e);
+    } catch (CancellationException e) {
+      throw new ScriptException(e);
+    } catch (ExecutionException e) {
+      throw toScriptException(e.getCause());
+    }
+  }
+
+  private void run(Task task) {
+    synchronized (this) {
+      if (result.isDone()) {
+        return;
+      }
+      runner = Thread.currentThread();
+      startedNanos = System.nanoTime();
+      resourceUsage.track(runner);
+    }
+    try {
+      var outcome = task.execute(this);
+      var stats = new ExecutionStats(script.getPrepareNanos(), startedNanos - submittedNanos, System.nanoTime() - startedNanos,
+        resourceUsage.cpuNanos(), resourceUsage.allocatedBytes());
+      result.complete(outcome.withStats(stats));
+    } catch (Throwable e) {
+      result.completeExceptionally(toScriptException(e));
+    } finally {
+      synchronized (this) {
+        runner = null;
+        if (runaway) {
+          RUNAWAYS.decrementAndGet();
+        }
+        //don't leak the cancellation interrupt to the next task of a pooled thread
+        Thread.interrupted();
+      }
+    }
+  }
+
+  public static ScriptException toScriptException(Throwable e) {
+    if (e instanceof ScriptException) {
+      return (ScriptException) e;
+    }
+    if (e instanceof CompletionException && e.getCause() != null) {
+      return toScriptException(e.getCause());
+    }
+    if (e instanceof Exception) {
+      return new ScriptException((Exception) e);
+    }
+    var scriptException = new ScriptException(String.valueOf(e));
+    scriptException.initCause(e);
+    return scriptException;
+  }
+
+  private static ScheduledThreadPoolExecutor createTimeoutScheduler() {
+    var scheduler = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("script-timeout"));
+    //most executions complete in time, don't keep their timeout tasks in the queue
+    scheduler.setRemoveOnCancelPolicy(true);
+    return scheduler;
+  }
+
+  @FunctionalInterface
+  public interface Task {
+    ScriptResult execute(ScriptExecution execution) throws Exception;
+  }
+}
@@ -0,0 +1,43 @@
+package org.jrx.interpreter.core;
+
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.script.ScriptException;
+
+public interface ScriptExecutor extends AutoCloseable {
+  int DEFAULT_BATCH_IN_FLIGHT = 2 * Runtime.getRuntime().availableProcessors();
+
+  String getEngineName();
+
+  PreparedScript prepare(String script) throws ScriptException;
+
+  ExecutorMetrics getMetrics();
+
+  default ScriptExecution execute(PreparedScript script, ScriptBindings bindings) {
+    return execute(script, bindings, ScriptOutput.buffered());
+  }
+
+  ScriptExecution execute(PreparedScript script, ScriptBindings bindings, ScriptOutput output);
+
+  default ScriptExecution execute(PreparedScript script, ScriptBindings bindings, ExecutionBudget budget) {
+    return execute(script, bindings).withBudget(budget);
+  }
+
+  default ScriptResult execute(String script, ScriptBindings bindings) throws ScriptException {
+    return execute(prepare(script), bindings).await();
+  }
+
+  //prepares the script once and runs it for every context as the ctx binding, results come in the order of the contexts
+  default Stream<BatchResult> executeBatch(String script, Iterable<?> contexts) throws ScriptException {
+    return executeBatch(prepare(script), StreamSupport.stream(contexts.spliterator(), false), DEFAULT_BATCH_IN_FLIGHT);
+  }
+
+  //maxInFlight bounds the executions submitted ahead of the consumer, close the stream to cancel them when stopping early
+  default Stream<BatchResult> executeBatch(PreparedScript script, Stream<?> contexts, int maxInFlight) {
+    return ScriptBatch.stream(this, script, contexts, maxInFlight);
+  }
+
+  @Override
+  default void close() {
+  }
+}
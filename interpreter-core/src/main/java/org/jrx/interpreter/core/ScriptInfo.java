@@ -0,0 +1,107 @@
+package org.jrx.interpreter.core;
+
+import java.util.List;
+import java.util.Optional;
+import javax.script.ScriptException;
+import static java.util.stream.Collectors.joining;
+
+//what a single pass over the source found: declared classes, the class of the main method,
+//System.out/System.err references and the rule violations with their positions
+public final class ScriptInfo {
+  private static final String SOURCE_NAME = "script";
+
+  private final List<String> classNames;
+  private final String mainClassName;
+  //start and end offsets of every System.out./System.err. reference, in pairs
+  private final int[] systemStreamRanges;
+  private final List<Diagnostic> diagnostics;
+
+  ScriptInfo(List<String> classNames, String mainClassName, int[] systemStreamRanges, List<Diagnostic> diagnostics) {
+    this.classNames = List.copyOf(classNames);
+    this.mainClassName = mainClassName;
+    this.systemStreamRanges = systemStreamRanges;
+    this.diagnostics = List.copyOf(diagnostics);
+  }
+
+  //top-level classes, interfaces and enums in the order of declaration
+  public List<String> getClassNames() {
+    return classNames;
+  }
+
+  //dotted for a nested class, e.g. Outer.Inner
+  public Optional<String> getMainClassName() {
+    return Optional.ofNullable(mainClassName);
+  }
+
+  public int getSystemStreamReferences() {
+    return systemStreamRanges.length / 2;
+  }
+
+  public List<Diagnostic> getDiagnostics() {
+    return diagnostics;
+  }
+
+  public boolean isValid() {
+    return diagnostics.isEmpty();
+  }
+
+  public ScriptInfo requireValid() throws ScriptException {
+    if (diagnostics.isEmpty()) {
+      return this;
+    }
+    var message = diagnostics.stream().map(Diagnostic::toString).collect(joining(System.lineSeparator()));
+    var first = diagnostics.get(0);
+    throw new ScriptException(message, SOURCE_NAME, first.getLine(), first.getColumn());
+  }
+
+  //turns System.out.println(...) into println(...) of the script, strings and comments are left as they are.
+  //the source of these infos is expected, no copy when there is nothing to strip
+  public String stripSystemStreams(String source) {
+    if (systemStreamRanges.length == 0) {
+      return source;
+    }
+    var stripped = new StringBuilder(source.length());
+    var copiedTo = 0;
+    for (var i = 0; i < systemStreamRanges.length; i += 2) {
+      stripped.append(source, copiedTo, systemStreamRanges[i]);
+      copiedTo = systemStreamRanges[i + 1];
+    }
+    return stripped.append(source, copiedTo, source.length()).toString();
+  }
+
+  @Override
+  public String toString() {
+    return "ScriptInfo{classes=" + classNames + ", main=" + mainClassName + ", systemStreamReferences="
+      + getSystemStreamReferences() + ", diagnostics=" + diagnostics.size() + '}';
+  }
+
+  public static final class Diagnostic {
+    private final int line;
+    private final int column;
+    private final String message;
+
+    //line and column are 1-based, -1 for the script as a whole
+    Diagnostic(int line, int column, String message) {
+      this.line = line;
+      this.column = column;
+      this.message = message;
+    }
+
+    public int getLine() {
+      return line;
+    }
+
+    public int getColumn() {
+      return column;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+    @Override
+    public String toString() {
+      return line < 0 ? message : line + ":" + column + ": " + message;
+    }
+  }
+}
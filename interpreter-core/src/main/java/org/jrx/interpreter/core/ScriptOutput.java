@@ -0,0 +1,289 @@
+package org.jrx.interpreter.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+//where the output of a single execution goes, must not be shared between executions
+public abstract class ScriptOutput {
+  public static final long UNLIMITED = Long.MAX_VALUE;
+  private static final int CHUNK_SIZE = 8192;
+  private static final int MAX_BUFFERED_CHUNKS = 16;
+  //the common pool may have no spare workers, e.g. on a single cpu
+  private static final ExecutorService DELIVERY_EXECUTOR = Executors.newCachedThreadPool(new DaemonThreadFactory("script-output"));
+
+  private final long maxBytes;
+  //orders the chunks of concurrent writers and is held while a chunk waits for the subscriber. The monitor of the
+  //output only guards its state, so written() and collected() never wait for the subscriber
+  private final Object delivery = new Object();
+  //attached under the monitor, read without it when the limit stops the execution
+  private volatile ScriptExecution execution;
+  private long written;
+
+  private ScriptOutput(long maxBytes) {
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("Output limit must not be negative, got " + maxBytes);
+    }
+    this.maxBytes = maxBytes;
+  }
+
+  public static ScriptOutput buffered() {
+    return buffered(UNLIMITED);
+  }
+
+  public static ScriptOutput buffered(long maxBytes) {
+    return new Buffered(maxBytes);
+  }
+
+  //chunks are delivered asynchronously, the script blocks on write while the subscriber has no demand
+  public static ScriptOutput streaming(Flow.Subscriber<? super ByteBuffer> subscriber, long maxBytes) {
+    return new Published(subscriber, maxBytes);
+  }
+
+  //chunks are delivered on the script thread, a slow callback slows the script down
+  public static ScriptOutput streaming(Consumer<ByteBuffer> callback, long maxBytes) {
+    return new Chunked(maxBytes) {
+      @Override
+      void publish(ByteBuffer chunk) {
+        callback.accept(chunk);
+      }
+    };
+  }
+
+  //the output is closed once the execution completes, even if the script has never started
+  public ScriptExecution attach(ScriptExecution execution) {
+    synchronized (this) {
+      if (this.execution == execution) {
+        return execution;
+      }
+      if (this.execution != null) {
+        throw new IllegalStateException("Output is already attached to " + this.execution.getScript());
+      }
+      this.execution = execution;
+    }
+    execution.getCompletion().whenComplete((result, e) -> close(e));
+    return execution;
+  }
+
+  //execution is null for synchronous callers, then the limit only cuts the output off
+  public OutputStream open(ScriptExecution execution) {
+    if (execution != null) {
+      attach(execution);
+    }
+    return new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        ScriptOutput.this.write(b, off, len);
+      }
+
+      @Override
+      public void flush() throws IOException {
+        ScriptOutput.this.flush();
+      }
+    };
+  }
+
+  //output kept in memory, empty for the streaming outputs
+  public String collected() {
+    return "";
+  }
+
+  public boolean isCollected() {
+    return false;
+  }
+
+  public synchronized long written() {
+    return written;
+  }
+
+  public long maxBytes() {
+    return maxBytes;
+  }
+
+  //a chunk at a time, a large write waits for the subscriber without piling up its chunks
+  private void write(byte[] b, int off, int len) throws IOException {
+    synchronized (delivery) {
+      do {
+        var slice = Math.min(len, CHUNK_SIZE);
+        boolean exceeded;
+        List<ByteBuffer> chunks;
+        synchronized (this) {
+          var allowed = maxBytes - written;
+          exceeded = slice > allowed;
+          var appended = exceeded ? (int) Math.max(allowed, 0) : slice;
+          if (appended > 0) {
+            written += appended;
+            append(b, off, appended);
+          }
+          chunks = drain(exceeded);
+        }
+        deliver(chunks);
+        if (exceeded) {
+          stopExecution(new OutputLimitExceededException(maxBytes));
+          //print streams swallow the exception, the script itself is stopped by the execution
+          throw new IOException("Output limit of " + maxBytes + " bytes is exceeded");
+        }
+        off += slice;
+        len -= slice;
+      } while (len > 0);
+    }
+  }
+
+  void flush() throws IOException {
+    synchronized (delivery) {
+      List<ByteBuffer> chunks;
+      synchronized (this) {
+        chunks = drain(true);
+      }
+      deliver(chunks);
+    }
+  }
+
+  private void deliver(List<ByteBuffer> chunks) throws IOException {
+    for (var chunk : chunks) {
+      publish(chunk);
+    }
+  }
+
+  void stopExecution(Throwable reason) {
+    var attached = execution;
+    if (attached != null) {
+      attached.stop(reason);
+    }
+  }
+
+  //called under the monitor of the output
+  abstract void append(byte[] b, int off, int len);
+
+  //the chunks to publish, called under the monitor of the output. A partial chunk only on a flush
+  List<ByteBuffer> drain(boolean partial) {
+    return List.of();
+  }
+
+  //called outside of the monitor of the output, one chunk at a time in the order of the writes
+  void publish(ByteBuffer chunk) throws IOException {
+  }
+
+  void close(Throwable failure) {
+  }
+
+  private static final class Buffered extends ScriptOutput {
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    private Buffered(long maxBytes) {
+      super(maxBytes);
+    }
+
+    @Override
+    void append(byte[] b, int off, int len) {
+      buffer.write(b, off, len);
+    }
+
+    @Override
+    public synchronized String collected() {
+      return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean isCollected() {
+      return true;
+    }
+  }
+
+  private abstract static class Chunked extends ScriptOutput {
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private final List<ByteBuffer> full = new ArrayList<>();
+    private int chunkLength;
+
+    private Chunked(long maxBytes) {
+      super(maxBytes);
+    }
+
+    @Override
+    void append(byte[] b, int off, int len) {
+      while (len > 0) {
+        var copied = Math.min(len, chunk.length - chunkLength);
+        System.arraycopy(b, off, chunk, chunkLength, copied);
+        chunkLength += copied;
+        off += copied;
+        len -= copied;
+        if (chunkLength == chunk.length) {
+          cut();
+        }
+      }
+    }
+
+    @Override
+    List<ByteBuffer> drain(boolean partial) {
+      if (partial && chunkLength > 0) {
+        cut();
+      }
+      if (full.isEmpty()) {
+        return List.of();
+      }
+      var chunks = List.copyOf(full);
+      full.clear();
+      return chunks;
+    }
+
+    private void cut() {
+      full.add(ByteBuffer.wrap(Arrays.copyOf(chunk, chunkLength)).asReadOnlyBuffer());
+      chunkLength = 0;
+    }
+
+    @Override
+    abstract void publish(ByteBuffer chunk) throws IOException;
+  }
+
+  private static final class Published extends Chunked {
+    private final SubmissionPublisher<ByteBuffer> publisher = new SubmissionPublisher<>(DELIVERY_EXECUTOR, MAX_BUFFERED_CHUNKS);
+
+    private Published(Flow.Subscriber<? super ByteBuffer> subscriber, long maxBytes) {
+      super(maxBytes);
+      publisher.subscribe(subscriber);
+    }
+
+    @Override
+    void publish(ByteBuffer chunk) throws IOException {
+      if (publisher.isClosed()) {
+        throw new IOException("Output is closed");
+      }
+      if (!publisher.hasSubscribers()) {
+        //nobody is interested in the output anymore
+        stopExecution(new CancellationException("Output subscription is cancelled"));
+        throw new IOException("Output subscription is cancelled");
+      }
+      //blocks while the subscriber buffer is full, the interruption of a stopped execution drops the chunk
+      if (publisher.offer(chunk, Long.MAX_VALUE, TimeUnit.NANOSECONDS, (subscriber, dropped) -> false) < 0) {
+        throw new InterruptedIOException("Output chunk is dropped, the execution is stopped");
+      }
+    }
+
+    @Override
+    void close(Throwable failure) {
+      if (failure == null) {
+        publisher.close();
+      } else {
+        publisher.closeExceptionally(failure);
+      }
+    }
+  }
+}
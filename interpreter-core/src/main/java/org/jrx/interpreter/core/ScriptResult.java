@@ -0,0 +1,38 @@
+package org.jrx.interpreter.core;
+
+public final class ScriptResult {
+  private final String output;
+  private final Object value;
+  private final ExecutionStats stats;
+
+  public ScriptResult(String output, Object value) {
+    this(output, value, null);
+  }
+
+  private ScriptResult(String output, Object value, ExecutionStats stats) {
+    this.output = output;
+    this.value = value;
+    this.stats = stats;
+  }
+
+  public String getOutput() {
+    return output;
+  }
+
+  public Object getValue() {
+    return value;
+  }
+
+  public ExecutionStats getStats() {
+    return stats;
+  }
+
+  ScriptResult withStats(ExecutionStats stats) {
+    return new ScriptResult(output, value, stats);
+  }
+
+  @Override
+  public String toString() {
+    return "ScriptResult{value=" + value + ", outputLength=" + output.length() + ", stats=" + stats + '}';
+  }
+}
@@ -0,0 +1,357 @@
+package org.jrx.interpreter.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import javax.script.ScriptException;
+
+//all the checks of an engine in one pass over the source. A small lexer for java-like syntax skips comments and
+//string literals, so a keyword in a string or a comment is not a declaration. Verdicts are cached by the script hash,
+//negative ones too. Groovy slashy strings (/.../ and $/.../$) are not lexed: a slash may as well be a division,
+//so a keyword inside a slashy string counts as code
+public final class ScriptValidator {
+  private static final int DEFAULT_CACHE_SIZE = 1024;
+  private static final int MAX_DIAGNOSTICS = 20;
+
+  private final Set<Rule> rules;
+  private final ScriptCache<ScriptInfo> verdicts;
+
+  public ScriptValidator(Set<Rule> rules, int cacheSize) {
+    var copy = EnumSet.noneOf(Rule.class);
+    copy.addAll(rules);
+    this.rules = Collections.unmodifiableSet(copy);
+    this.verdicts = new ScriptCache<>(cacheSize);
+  }
+
+  public static ScriptValidator of(Rule... rules) {
+    return new ScriptValidator(Set.copyOf(Arrays.asList(rules)), DEFAULT_CACHE_SIZE);
+  }
+
+  public ScriptInfo validate(String script) throws ScriptException {
+    return validate(ScriptCache.hash(script), script);
+  }
+
+  public ScriptInfo validate(String hash, String script) throws ScriptException {
+    return verdicts.get(hash, script, (key, source) -> scan(source)).requireValid();
+  }
+
+  //not cached, never throws: the violations are the diagnostics of the result
+  public ScriptInfo scan(String script) {
+    return new Scanner(script, rules).scan();
+  }
+
+  public Set<Rule> getRules() {
+    return rules;
+  }
+
+  public ScriptCache<ScriptInfo> getVerdicts() {
+    return verdicts;
+  }
+
+  public enum Rule {
+    NO_CLASSES,
+    NO_STATIC,
+    NO_PUBLIC_CLASSES,
+    //a public static void main method in a class, the class is the main class of the script
+    REQUIRE_MAIN
+  }
+
+  private static final class Scanner {
+    private static final int IDENTIFIER = 1;
+    private static final int LITERAL = 2;
+    private static final int PUNCTUATION = 3;
+
+    private final String source;
+    private final int length;
+    private final Set<Rule> rules;
+    private final List<String> classNames = new ArrayList<>();
+    private final ArrayDeque<ClassFrame> classFrames = new ArrayDeque<>();
+    private final List<RawDiagnostic> diagnostics = new ArrayList<>();
+    private int[] systemStreamRanges = new int[0];
+    private int systemStreamRangesLength;
+    private int position;
+    private int depth;
+
+    private int previousKind;
+    private int previousStart;
+    private int previousEnd;
+
+    //modifiers of the declaration being read, reset by ; { and }
+    private boolean publicModifier;
+    private boolean staticModifier;
+    private boolean expectingClassName;
+    private int classKeywordStart;
+    private boolean publicClass;
+    //declared, its body starts with the next {
+    private String pendingClass;
+    private boolean mainCandidate;
+    private int mainCandidateStart;
+    private String mainClassName;
+    private int mainOutsideClassStart = -1;
+    //System . out|err . read so far
+    private int systemStreamState;
+    private int systemStreamStart;
+
+    private Scanner(String source, Set<Rule> rules) {
+      this.source = source;
+      this.length = source.length();
+      this.rules = rules;
+    }
+
+    private ScriptInfo scan() {
+      while (position < length) {
+        var c = source.charAt(position);
+        if (Character.isWhitespace(c)) {
+          position++;
+        } else if (c == '/' && position + 1 < length && source.charAt(position + 1) == '/') {
+          var lineEnd = source.indexOf('\n', position + 2);
+          position = lineEnd < 0 ? length : lineEnd + 1;
+        } else if (c == '/' && position + 1 < length && source.charAt(position + 1) == '*') {
+          var commentEnd = source.indexOf("*/", position + 2);
+          position = commentEnd < 0 ? length : commentEnd + 2;
+        } else if (c == '"' || c == '\'') {
+          var start = position;
+          position = skipQuoted(c);
+          token(LITERAL, start, position);
+        } else if (Character.isJavaIdentifierStart(c)) {
+          var start = position++;
+          while (position < length && Character.isJavaIdentifierPart(source.charAt(position))) {
+            position++;
+          }
+          identifier(start, position);
+        } else if (Character.isDigit(c)) {
+          var start = position++;
+          while (position < length && Character.isJavaIdentifierPart(source.charAt(position))) {
+            position++;
+          }
+          token(LITERAL, start, position);
+        } else {
+          punctuation(c);
+          position++;
+        }
+      }
+      if (rules.contains(Rule.REQUIRE_MAIN) && mainClassName == null) {
+        if (mainOutsideClassStart >= 0) {
+          report(mainOutsideClassStart, "The main method must be declared in a class");
+        } else {
+          report(-1, "There must be a public static void main method");
+        }
+      }
+      return new ScriptInfo(classNames, mainClassName, Arrays.copyOf(systemStreamRanges, systemStreamRangesLength),
+        resolvePositions());
+    }
+
+    //triple quotes are text blocks of java and multiline strings of groovy and kotlin.
+    //an unterminated single-line literal ends with the line, the compiler reports it
+    private int skipQuoted(char quote) {
+      var triple = position + 2 < length && source.charAt(position + 1) == quote && source.charAt(position + 2) == quote;
+      var i = position + (triple ? 3 : 1);
+      while (i < length) {
+        var c = source.charAt(i);
+        if (c == '\\') {
+          i += 2;
+        } else if (c == quote && (!triple || i + 2 < length && source.charAt(i + 1) == quote && source.charAt(i + 2) == quote)) {
+          return i + (triple ? 3 : 1);
+        } else if (c == '\n' && !triple) {
+          return i;
+        } else {
+          i++;
+        }
+      }
+      return length;
+    }
+
+    private void identifier(int start, int end) {
+      if (expectingClassName) {
+        expectingClassName = false;
+        declareClass(source.substring(start, end));
+        token(IDENTIFIER, start, end);
+        return;
+      }
+      mainCandidate = false;
+      if (is(start, end, "System") && !previousIs('.')) {
+        systemStreamState = 1;
+        systemStreamStart = start;
+      } else if (systemStreamState == 2 && (is(start, end, "out") || is(start, end, "err"))) {
+        systemStreamState = 3;
+      } else {
+        systemStreamState = 0;
+      }
+      if (is(start, end, "public")) {
+        publicModifier = true;
+      } else if (is(start, end, "static")) {
+        //a static import declares nothing
+        if (!previousIsWord("import")) {
+          staticModifier = true;
+          if (rules.contains(Rule.NO_STATIC)) {
+            report(start, "Script must contain no static definitions");
+          }
+        }
+      } else if (is(start, end, "class") || is(start, end, "interface") || is(start, end, "enum")
+        || is(start, end, "trait")) {
+        //Foo.class and Foo::class are literals
+        if (!previousIs('.') && !previousIs(':')) {
+          expectingClassName = true;
+          classKeywordStart = start;
+          publicClass = publicModifier;
+        }
+      } else if (is(start, end, "main")) {
+        if (previousIsWord("void") && publicModifier && staticModifier) {
+          mainCandidate = true;
+          mainCandidateStart = start;
+        }
+      }
+      token(IDENTIFIER, start, end);
+    }
+
+    private void declareClass(String name) {
+      var topLevel = classFrames.isEmpty();
+      if (rules.contains(Rule.NO_CLASSES)) {
+        report(classKeywordStart, "Script must contain no class definitions");
+      }
+      if (rules.contains(Rule.NO_PUBLIC_CLASSES) && publicClass && topLevel) {
+        report(classKeywordStart, "There must be no public classes");
+      }
+      if (topLevel) {
+        classNames.add(name);
+      }
+      pendingClass = topLevel ? name : classFrames.peek().name + "." + name;
+    }
+
+    private void punctuation(char c) {
+      expectingClassName = false;
+      if (c == '(' && mainCandidate) {
+        if (classFrames.isEmpty()) {
+          if (mainOutsideClassStart < 0) {
+            mainOutsideClassStart = mainCandidateStart;
+          }
+        } else if (mainClassName == null || classFrames.size() == 1 && mainClassName.indexOf('.') >= 0) {
+          //the main of a top-level class wins over the one of a nested class
+          mainClassName = classFrames.peek().name;
+        }
+      }
+      mainCandidate = false;
+      if (c == '.' && systemStreamState == 1) {
+        systemStreamState = 2;
+      } else if (c == '.' && systemStreamState == 3) {
+        addSystemStreamRange(systemStreamStart, position + 1);
+        systemStreamState = 0;
+      } else {
+        systemStreamState = 0;
+      }
+      if (c == '{') {
+        depth++;
+        if (pendingClass != null) {
+          classFrames.push(new ClassFrame(pendingClass, depth));
+          pendingClass = null;
+        }
+        resetModifiers();
+      } else if (c == '}') {
+        if (!classFrames.isEmpty() && classFrames.peek().depth == depth) {
+          classFrames.pop();
+        }
+        depth = Math.max(0, depth - 1);
+        resetModifiers();
+      } else if (c == ';') {
+        pendingClass = null;
+        resetModifiers();
+      }
+      token(PUNCTUATION, position, position + 1);
+    }
+
+    private void token(int kind, int start, int end) {
+      if (kind != IDENTIFIER) {
+        expectingClassName = false;
+        mainCandidate = false;
+        if (kind == LITERAL) {
+          systemStreamState = 0;
+        }
+      }
+      previousKind = kind;
+      previousStart = start;
+      previousEnd = end;
+    }
+
+    private void resetModifiers() {
+      publicModifier = false;
+      staticModifier = false;
+    }
+
+    private boolean is(int start, int end, String word) {
+      return end - start == word.length() && source.regionMatches(start, word, 0, word.length());
+    }
+
+    private boolean previousIs(char c) {
+      return previousKind == PUNCTUATION && source.charAt(previousStart) == c;
+    }
+
+    private boolean previousIsWord(String word) {
+      return previousKind == IDENTIFIER && is(previousStart, previousEnd, word);
+    }
+
+    private void addSystemStreamRange(int start, int end) {
+      if (systemStreamRangesLength + 2 > systemStreamRanges.length) {
+        systemStreamRanges = Arrays.copyOf(systemStreamRanges, Math.max(8, systemStreamRanges.length * 2));
+      }
+      systemStreamRanges[systemStreamRangesLength++] = start;
+      systemStreamRanges[systemStreamRangesLength++] = end;
+    }
+
+    private void report(int offset, String message) {
+      if (diagnostics.size() < MAX_DIAGNOSTICS) {
+        diagnostics.add(new RawDiagnostic(offset, message));
+      }
+    }
+
+    //one more pass up to the last reported offset, only for an invalid script
+    private List<ScriptInfo.Diagnostic> resolvePositions() {
+      if (diagnostics.isEmpty()) {
+        return List.of();
+      }
+      diagnostics.sort(Comparator.comparingInt(diagnostic -> diagnostic.offset));
+      var resolved = new ArrayList<ScriptInfo.Diagnostic>(diagnostics.size());
+      var line = 1;
+      var lineStart = 0;
+      var scanned = 0;
+      for (var diagnostic : diagnostics) {
+        if (diagnostic.offset < 0) {
+          resolved.add(new ScriptInfo.Diagnostic(-1, -1, diagnostic.message));
+          continue;
+        }
+        for (; scanned < diagnostic.offset; scanned++) {
+          if (source.charAt(scanned) == '\n') {
+            line++;
+            lineStart = scanned + 1;
+          }
+        }
+        resolved.add(new ScriptInfo.Diagnostic(line, diagnostic.offset - lineStart + 1, diagnostic.message));
+      }
+      return resolved;
+    }
+  }
+
+  private static final class ClassFrame {
+    private final String name;
+    private final int depth;
+
+    private ClassFrame(String name, int depth) {
+      this.name = name;
+      this.depth = depth;
+    }
+  }
+
+  private static final class RawDiagnostic {
+    private final int offset;
+    private final String message;
+
+    private RawDiagnostic(int offset, String message) {
+      this.offset = offset;
+      this.message = message;
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package org.jrx.interpreter.core;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//a latch, not a pulse: once tripped it stops every execution subscribed to it, the running ones and every one started
+//afterwards, until reset() is called. An execution subscribing just after the trip is not missed this way, but an
+//executor whose switch stays tripped fails everything it runs. The examples share one switch per engine class
+public class StopSwitch {
+  private final AtomicBoolean tripped = new AtomicBoolean();
+  private final Set<Runnable> listeners = ConcurrentHashMap.newKeySet();
+
+  //stops the subscribed executions and, until the reset, every execution that subscribes later
+  public void trip() {
+    if (tripped.compareAndSet(false, true)) {
+      listeners.forEach(Runnable::run);
+    }
+  }
+
+  //executions stopped by the trip stay stopped, the next ones run again
+  public void reset() {
+    tripped.set(false);
+  }
+
+  public boolean isTripped() {
+    return tripped.get();
+  }
+
+  //the listener runs at once on a tripped switch
+  public Runnable subscribe(Runnable listener) {
+    listeners.add(listener);
+    if (tripped.get() && listeners.remove(listener)) {
+      listener.run();
+    }
+    return () -> listeners.remove(listener);
+  }
+}
@@ -0,0 +1,60 @@
+package org.jrx.interpreter.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BytecodeCacheTest {
+  private static final String KEY = BytecodeCache.key("script", "1.0", "test");
+  private static final byte[] CLASS_FILE = {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE};
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void storedClassesAreLoaded() {
+    var cache = new BytecodeCache(directory);
+    assertTrue(cache.store(KEY, Map.of("Script", CLASS_FILE)));
+
+    var classes = cache.load(KEY).orElseThrow();
+    var classFile = new byte[CLASS_FILE.length];
+    classes.get("Script").get(classFile);
+    assertArrayEquals(CLASS_FILE, classFile);
+    assertEquals(1, cache.hits());
+  }
+
+  //offsets of the class count, the name length and the class file length in an entry of one class named Script
+  @ParameterizedTest
+  @ValueSource(ints = {8, 12, 22})
+  void corruptLengthIsAMiss(int offset) throws IOException {
+    for (var length : new int[]{-1, Integer.MAX_VALUE}) {
+      var cache = new BytecodeCache(directory);
+      cache.store(KEY, Map.of("Script", CLASS_FILE));
+      var entry = entryPath();
+      var bytes = Files.readAllBytes(entry);
+      assertEquals("Script", new String(bytes, 16, 6, StandardCharsets.UTF_8));
+      ByteBuffer.wrap(bytes).putInt(offset, length);
+      Files.write(entry, bytes);
+
+      assertTrue(cache.load(KEY).isEmpty());
+      assertEquals(1, cache.failures());
+      assertEquals(1, cache.misses());
+    }
+  }
+
+  private Path entryPath() throws IOException {
+    try (var files = Files.walk(directory)) {
+      return files.filter(Files::isRegularFile).findFirst().orElseThrow();
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package org.jrx.interpreter.core;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ExecutionSchedulerTest {
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+  private static final int CORES = Runtime.getRuntime().availableProcessors();
+  private static final int MAX_PARALLELISM = 8;
+  private static final int TASKS_PER_WORKER = 16;
+  private static final long TASK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+  //of a linear speedup, the rest goes to the jit, the gc and the other processes of the machine
+  private static final double MIN_SCALING_EFFICIENCY = 0.7;
+
+  //cpu-bound executions gain from every worker up to the core count
+  @Test
+  void throughputScalesNearLinearlyUpToTheCoreCount() throws InterruptedException {
+    assumeTrue(CORES > 1, "A single core can't show any scaling");
+    var single = throughput(1);
+    for (var parallelism = 2; parallelism <= Math.min(CORES, MAX_PARALLELISM); parallelism *= 2) {
+      var scaling = throughput(parallelism) / single;
+      assertTrue(scaling >= parallelism * MIN_SCALING_EFFICIENCY,
+        "Throughput of " + parallelism + " workers is only " + scaling + " times the throughput of one");
+    }
+  }
+
+  //waiting executions don't need cores, all the workers wait at once even on a single core
+  @Test
+  void workersRunConcurrently() throws InterruptedException {
+    var parallelism = 4;
+    var started = new CountDownLatch(parallelism);
+    var release = new CountDownLatch(1);
+    try (var scheduler = new ExecutionScheduler(parallelism)) {
+      for (var i = 0; i < parallelism; i++) {
+        scheduler.execute(() -> {
+          started.countDown();
+          await(release);
+        });
+      }
+      assertTrue(started.await(10, TimeUnit.SECONDS), "Only " + (parallelism - started.getCount()) + " workers started");
+      assertEquals(parallelism, scheduler.active());
+      release.countDown();
+    }
+  }
+
+  @Test
+  void tenantRunsAtMostItsConcurrency() throws InterruptedException {
+    var maxConcurrency = 2;
+    var tasks = 20;
+    var running = new AtomicInteger();
+    var maxRunning = new AtomicInteger();
+    var done = new CountDownLatch(tasks);
+    try (var scheduler = new ExecutionScheduler(8)) {
+      var tenant = scheduler.forTenant("tenant", maxConcurrency);
+      for (var i = 0; i < tasks; i++) {
+        tenant.execute(() -> {
+          maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+          burn(TASK_NANOS);
+          running.decrementAndGet();
+          done.countDown();
+        });
+      }
+      assertTrue(done.await(30, TimeUnit.SECONDS));
+      assertTrue(maxRunning.get() <= maxConcurrency, "Tenant ran " + maxRunning.get() + " executions at once");
+    }
+  }
+
+  @Test
+  void idleTenantsAreRemoved() throws InterruptedException {
+    var tenants = 1000;
+    var done = new CountDownLatch(tenants * 2);
+    try (var scheduler = new ExecutionScheduler(4)) {
+      var executors = new ArrayList<Executor>();
+      for (var i = 0; i < tenants; i++) {
+        var tenant = scheduler.forTenant("tenant-" + i, 1);
+        executors.add(tenant);
+        tenant.execute(done::countDown);
+      }
+      //an executor outlives its lane
+      executors.forEach(tenant -> tenant.execute(done::countDown));
+      assertTrue(done.await(30, TimeUnit.SECONDS));
+      waitUntilIdle(scheduler);
+      assertEquals(0, scheduler.tenants(), scheduler.toString());
+    }
+  }
+
+  private static double throughput(int parallelism) throws InterruptedException {
+    try (var scheduler = new ExecutionScheduler(parallelism)) {
+      //the first round warms up the jit and starts the workers
+      run(scheduler, parallelism);
+      var startedNanos = System.nanoTime();
+      var tasks = run(scheduler, parallelism);
+      return tasks * 1e9 / (System.nanoTime() - startedNanos);
+    }
+  }
+
+  private static int run(ExecutionScheduler scheduler, int parallelism) throws InterruptedException {
+    var tasks = parallelism * TASKS_PER_WORKER;
+    var done = new CountDownLatch(tasks);
+    for (var i = 0; i < tasks; i++) {
+      scheduler.execute(() -> {
+        burn(TASK_NANOS);
+        done.countDown();
+      });
+    }
+    assertTrue(done.await(1, TimeUnit.MINUTES));
+    return tasks;
+  }
+
+  //cpu time, not wall time: a worker descheduled by the os has done less work and takes longer
+  private static void burn(long cpuNanos) {
+    var deadline = THREADS.getCurrentThreadCpuTime() + cpuNanos;
+    while (THREADS.getCurrentThreadCpuTime() < deadline) {
+      Thread.onSpinWait();
+    }
+  }
+
+  private static void waitUntilIdle(ExecutionScheduler scheduler) throws InterruptedException {
+    var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while ((scheduler.active() > 0 || scheduler.tenants() > 0) && System.nanoTime() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package org.jrx.interpreter.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScriptOutputTest {
+  //more than the publisher buffers, the writer blocks until the subscriber asks for more
+  private static final int BYTES = 1024 * 1024;
+  private static final ExecutorService THREADS = Executors.newCachedThreadPool(new DaemonThreadFactory("output-test"));
+
+  @Test
+  void writerWaitingForTheSubscriberBlocksNobodyElse() throws Exception {
+    var subscriber = new SlowSubscriber();
+    var output = ScriptOutput.streaming(subscriber, ScriptOutput.UNLIMITED);
+    var stream = output.open(null);
+    var writer = CompletableFuture.runAsync(() -> write(stream, BYTES), THREADS);
+    assertTrue(subscriber.subscribed.await(10, TimeUnit.SECONDS));
+    assertThrows(TimeoutException.class, () -> writer.get(200, TimeUnit.MILLISECONDS), "Writer is not blocked");
+
+    var written = CompletableFuture.supplyAsync(output::written, THREADS).get(1, TimeUnit.SECONDS);
+    assertTrue(written > 0 && written < BYTES, "Written " + written);
+    assertEquals("", CompletableFuture.supplyAsync(output::collected, THREADS).get(1, TimeUnit.SECONDS));
+
+    subscriber.requestAll();
+    writer.get(10, TimeUnit.SECONDS);
+    output.close(null);
+    assertTrue(subscriber.completed.await(10, TimeUnit.SECONDS));
+    assertEquals(BYTES, subscriber.received.get());
+  }
+
+  @Test
+  void limitCutsTheOutputOff() throws IOException {
+    var output = ScriptOutput.buffered(5);
+    var stream = output.open(null);
+    stream.write("abc".getBytes());
+
+    assertThrows(IOException.class, () -> stream.write("defg".getBytes()));
+    assertEquals("abcde", output.collected());
+    assertEquals(5, output.written());
+  }
+
+  @Test
+  void chunksArriveInTheOrderOfTheWrites() throws Exception {
+    var received = new StringBuilder();
+    var output = ScriptOutput.streaming(chunk -> received.append(new String(toArray(chunk))), ScriptOutput.UNLIMITED);
+    var stream = output.open(null);
+    var expected = new StringBuilder();
+    for (var i = 0; i < 10_000; i++) {
+      var line = i + "\n";
+      expected.append(line);
+      stream.write(line.getBytes());
+    }
+    stream.flush();
+
+    assertEquals(expected.toString(), received.toString());
+    assertFalse(output.isCollected());
+  }
+
+  private static void write(OutputStream stream, int bytes) {
+    try {
+      stream.write(new byte[bytes]);
+      stream.flush();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static byte[] toArray(ByteBuffer chunk) {
+    var bytes = new byte[chunk.remaining()];
+    chunk.get(bytes);
+    return bytes;
+  }
+
+  private static final class SlowSubscriber implements Flow.Subscriber<ByteBuffer> {
+    private final CountDownLatch subscribed = new CountDownLatch(1);
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private final AtomicLong received = new AtomicLong();
+    private volatile Flow.Subscription subscription;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      subscribed.countDown();
+    }
+
+    @Override
+    public void onNext(ByteBuffer item) {
+      received.addAndGet(item.remaining());
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      completed.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+      completed.countDown();
+    }
+
+    void requestAll() {
+      subscription.request(Long.MAX_VALUE);
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package org.jrx.interpreter.core;
+
+import java.util.List;
+import javax.script.ScriptException;
+import org.jrx.interpreter.core.ScriptValidator.Rule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScriptValidatorTest {
+  private static final ScriptValidator NO_DECLARATIONS = ScriptValidator.of(Rule.NO_CLASSES, Rule.NO_STATIC);
+  private static final ScriptValidator MAIN = ScriptValidator.of(Rule.REQUIRE_MAIN, Rule.NO_PUBLIC_CLASSES);
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+    "println(\"class Foo static System.out.\")",
+    "def c = 'c'; def s = '\\''; println(\"static\")",
+    "// class Foo { static int x; }\nprintln(1)",
+    "/* class Foo\n static System.out. */ println(1)",
+    "def text = \"\"\"\nclass Foo {\n  static \"quoted\" System.out.\n}\n\"\"\"",
+    "def text = '''\nclass Foo { static }\n'''",
+    "def staticValue = 1; def classes = [String.class]; def kclass = String::class"
+  })
+  void keywordsInLiteralsCommentsAndNamesAreNotDeclarations(String script) {
+    var info = NO_DECLARATIONS.scan(script);
+
+    assertTrue(info.isValid(), info.getDiagnostics().toString());
+    assertEquals(List.of(), info.getClassNames());
+    assertEquals(0, info.getSystemStreamReferences());
+  }
+
+  @Test
+  void unterminatedLiteralEndsWithItsLine() {
+    var info = NO_DECLARATIONS.scan("println(\"unterminated class\nclass Foo {}");
+
+    assertEquals(List.of("Foo"), info.getClassNames());
+    assertEquals(1, info.getDiagnostics().size());
+    assertEquals(2, info.getDiagnostics().get(0).getLine());
+  }
+
+  @Test
+  void unterminatedTextBlockRunsToTheEnd() {
+    var info = NO_DECLARATIONS.scan("def text = \"\"\"\nclass Foo {}\n");
+
+    assertTrue(info.isValid(), info.getDiagnostics().toString());
+  }
+
+  @Test
+  void staticImportDeclaresNothing() {
+    var info = NO_DECLARATIONS.scan("import static java.lang.Math.max\nmax(1, 2)");
+
+    assertTrue(info.isValid(), info.getDiagnostics().toString());
+  }
+
+  @Test
+  void diagnosticsHaveLineAndColumn() {
+    var script = "def a = 1\n  class Foo {\n    static int b\n  }";
+    var info = NO_DECLARATIONS.scan(script);
+
+    assertEquals(List.of("2:3: Script must contain no class definitions", "3:5: Script must contain no static definitions"),
+      messages(info));
+    var thrown = assertThrows(ScriptException.class, () -> NO_DECLARATIONS.validate(script));
+    assertEquals(2, thrown.getLineNumber());
+    assertEquals(3, thrown.getColumnNumber());
+  }
+
+  @Test
+  void systemStreamsAreStrippedOutsideLiterals() {
+    var script = "System.out.println(\"System.out.x\"); System.err.print(1) // System.out.\n";
+    var info = NO_DECLARATIONS.scan(script);
+
+    assertEquals(2, info.getSystemStreamReferences());
+    assertEquals("println(\"System.out.x\"); print(1) // System.out.\n", info.stripSystemStreams(script));
+  }
+
+  @Test
+  void sourceWithoutSystemStreamsIsNotCopied() {
+    var script = "println(1)";
+
+    assertSame(script, NO_DECLARATIONS.scan(script).stripSystemStreams(script));
+  }
+
+  @Test
+  void mainClassIsTheClassDeclaringMain() {
+    var info = MAIN.scan("class Helper {}\nclass Script {\n  public static void main(String... args) {}\n}");
+
+    assertTrue(info.isValid(), info.getDiagnostics().toString());
+    assertEquals(List.of("Helper", "Script"), info.getClassNames());
+    assertEquals("Script", info.getMainClassName().orElseThrow());
+  }
+
+  @Test
+  void mainOfATopLevelClassWinsOverANestedOne() {
+    var info = MAIN.scan("class Outer {\n"
+      + "  static class Inner {\n    public static void main(String... args) {}\n  }\n"
+      + "  public static void main(String... args) {}\n"
+      + "}");
+
+    assertEquals(List.of("Outer"), info.getClassNames());
+    assertEquals("Outer", info.getMainClassName().orElseThrow());
+  }
+
+  @Test
+  void nestedMainIsDotted() {
+    var info = MAIN.scan("class Outer {\n  static class Inner {\n    public static void main(String... args) {}\n  }\n}");
+
+    assertEquals("Outer.Inner", info.getMainClassName().orElseThrow());
+  }
+
+  @Test
+  void mainOutsideAClassIsReported() {
+    var info = MAIN.scan("int x = 1;\npublic static void main(String... args) {}");
+
+    assertFalse(info.isValid());
+    assertEquals("2:20: The main method must be declared in a class", info.getDiagnostics().get(0).toString());
+  }
+
+  @Test
+  void missingMainIsReportedForTheWholeScript() {
+    var info = MAIN.scan("class Script {\n  static void main(String... args) {}\n}");
+
+    assertEquals(-1, info.getDiagnostics().get(0).getLine());
+    assertTrue(info.getMainClassName().isEmpty());
+  }
+
+  @Test
+  void onlyTopLevelPublicClassesAreReported() {
+    var info = MAIN.scan("public class Script {\n  public static class Inner {}\n  public static void main(String... args) {}\n}");
+
+    assertEquals(List.of("1:8: There must be no public classes"), messages(info));
+  }
+
+  @Test
+  void negativeVerdictIsCached() {
+    var validator = ScriptValidator.of(Rule.NO_CLASSES);
+    var script = "class Foo {}";
+
+    assertThrows(ScriptException.class, () -> validator.validate(script));
+    assertThrows(ScriptException.class, () -> validator.validate(script));
+    assertEquals(1, validator.getVerdicts().hits());
+  }
+
+  private static List<String> messages(ScriptInfo info) {
+    return info.getDiagnostics().stream().map(ScriptInfo.Diagnostic::toString).collect(toList());
+  }
+}
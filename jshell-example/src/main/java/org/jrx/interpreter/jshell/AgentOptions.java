@@ -0,0 +1,94 @@
+package org.jrx.interpreter.jshell;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+//how the agent JVMs of the remote execution mode are started and when an agent is recycled
+public final class AgentOptions {
+  private static final long DEFAULT_MAX_HEAP_BYTES = 64L * 1024 * 1024;
+  private static final AgentOptions DEFAULTS = new AgentOptions(DEFAULT_MAX_HEAP_BYTES, DEFAULT_MAX_HEAP_BYTES / 4 * 3, null, List.of());
+
+  private final long maxHeapBytes;
+  private final long recycleHeapBytes;
+  private final Path classDataArchive;
+  private final List<String> extraVmOptions;
+
+  private AgentOptions(long maxHeapBytes, long recycleHeapBytes, Path classDataArchive, List<String> extraVmOptions) {
+    this.maxHeapBytes = maxHeapBytes;
+    this.recycleHeapBytes = recycleHeapBytes;
+    this.classDataArchive = classDataArchive;
+    this.extraVmOptions = extraVmOptions;
+  }
+
+  public static AgentOptions defaults() {
+    return DEFAULTS;
+  }
+
+  //the recycling threshold keeps its share of the heap
+  public AgentOptions withMaxHeapBytes(long maxHeapBytes) {
+    var recycleShare = (double) recycleHeapBytes / this.maxHeapBytes;
+    return new AgentOptions(positive(maxHeapBytes), (long) (maxHeapBytes * recycleShare), classDataArchive, extraVmOptions);
+  }
+
+  //an agent using more heap after a run is replaced, garbage counts too
+  public AgentOptions withRecycleHeapBytes(long recycleHeapBytes) {
+    return new AgentOptions(maxHeapBytes, positive(recycleHeapBytes), classDataArchive, extraVmOptions);
+  }
+
+  //dumped on the first start if the file is missing, null starts the agents without an archive
+  public AgentOptions withClassDataArchive(Path classDataArchive) {
+    return new AgentOptions(maxHeapBytes, recycleHeapBytes, classDataArchive, extraVmOptions);
+  }
+
+  public AgentOptions withVmOptions(String... vmOptions) {
+    return new AgentOptions(maxHeapBytes, recycleHeapBytes, classDataArchive, List.of(vmOptions));
+  }
+
+  public long getMaxHeapBytes() {
+    return maxHeapBytes;
+  }
+
+  public long getRecycleHeapBytes() {
+    return recycleHeapBytes;
+  }
+
+  public Path getClassDataArchive() {
+    return classDataArchive;
+  }
+
+  public List<String> getExtraVmOptions() {
+    return extraVmOptions;
+  }
+
+  //a single script thread needs neither a parallel collector nor a large heap
+  List<String> vmOptions() {
+    var vmOptions = new ArrayList<String>();
+    vmOptions.add("-Xmx" + maxHeapBytes);
+    vmOptions.add("-XX:+UseSerialGC");
+    //the agent output is decoded as UTF-8 on this side
+    vmOptions.add("-Dfile.encoding=UTF-8");
+    vmOptions.add("-Xshare:auto");
+    if (classDataArchive != null && Files.isRegularFile(classDataArchive)) {
+      vmOptions.add("-XX:SharedArchiveFile=" + classDataArchive);
+      vmOptions.add("-cp");
+      vmOptions.add(ClassDataArchive.classPath(classDataArchive).toString());
+    }
+    vmOptions.addAll(extraVmOptions);
+    return vmOptions;
+  }
+
+  private static long positive(long bytes) {
+    if (bytes <= 0) {
+      throw new IllegalArgumentException("Heap size must be positive, got " + bytes);
+    }
+    return bytes;
+  }
+
+  @Override
+  public String toString() {
+    return "AgentOptions{maxHeapBytes=" + maxHeapBytes + ", recycleHeapBytes=" + recycleHeapBytes
+      + ", classDataArchive=" + classDataArchive + ", extraVmOptions=" + extraVmOptions + '}';
+  }
+}
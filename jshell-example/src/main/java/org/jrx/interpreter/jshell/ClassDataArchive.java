@@ -0,0 +1,85 @@
+package org.jrx.interpreter.jshell;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+//AppCDS archive of the classes an agent JVM loads: a training agent records the class list,
+//a separate JVM dumps it, so every agent started afterwards maps the classes instead of loading them. A failed dump is
+//reported on System.err, the agents start without the archive
+final class ClassDataArchive {
+  private static final long DUMP_TIMEOUT_SECONDS = 120;
+
+  private ClassDataArchive() {
+  }
+
+  //the archive is valid only for the class path it is dumped with,
+  //an empty directory next to it is the class path of the dump and of every agent
+  static Path classPath(Path archive) {
+    return archive.toAbsolutePath().resolveSibling(archive.getFileName() + ".classpath");
+  }
+
+  //the training run gets the vm options of a single agent, false leaves the agents without the archive
+  static boolean dump(Path archive, Consumer<List<String>> trainingRun) {
+    Path classList = null;
+    Path temp = null;
+    try {
+      var directory = archive.toAbsolutePath().getParent();
+      Files.createDirectories(directory);
+      Files.createDirectories(classPath(archive));
+      classList = Files.createTempFile(directory, "agent", ".classlist");
+      temp = Files.createTempFile(directory, "agent", ".jsa");
+      trainingRun.accept(List.of("-Xshare:off", "-XX:DumpLoadedClassList=" + classList));
+      var java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+      var process = new ProcessBuilder(java, "-Xshare:dump", "-XX:SharedClassListFile=" + classList,
+        "-XX:SharedArchiveFile=" + temp, "-cp", classPath(archive).toString())
+        .redirectErrorStream(true)
+        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+        .start();
+      if (!process.waitFor(DUMP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        process.destroyForcibly();
+        System.err.println("Class data dump timed out, archive=" + archive);
+        return false;
+      }
+      if (process.exitValue() != 0) {
+        System.err.println("Class data dump failed with " + process.exitValue() + ", archive=" + archive);
+        return false;
+      }
+      move(temp, archive);
+      return true;
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Class data dump failed, archive=" + archive + ": " + e);
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      deleteIfExists(classList);
+      deleteIfExists(temp);
+    }
+  }
+
+  private static void move(Path temp, Path archive) throws IOException {
+    try {
+      Files.move(temp, archive, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, archive, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static void deleteIfExists(Path path) {
+    if (path == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      //a leftover temp file only takes space
+    }
+  }
+}
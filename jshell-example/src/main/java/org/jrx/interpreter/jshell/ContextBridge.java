@@ -0,0 +1,179 @@
+package org.jrx.interpreter.jshell;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import jdk.jshell.JShell;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.modifier.Ownership;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.implementation.FixedValue;
+import org.jrx.interpreter.core.ScriptExecution;
+import static net.bytebuddy.dynamic.scaffold.subclass.ConstructorStrategy.Default.NO_CONSTRUCTORS;
+
+public final class ContextBridge {
+  private static final Map<String, Slot> SLOTS = new ConcurrentHashMap<>();
+  //views of the slots exposed to the accessor, must be of a java.base type
+  private static final ConcurrentHashMap<String, Supplier<String>> CONTEXT_SUPPLIERS = new ConcurrentHashMap<>();
+  //all the bindings of the run by name, the objects themselves rather than their string forms
+  private static final ConcurrentHashMap<String, Function<String, Object>> BINDINGS = new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<String, PrintStream> PRINT_STREAMS = new ConcurrentHashMap<>();
+  //main calls the snippets of a session register, run without evaluating a snippet
+  private static final ConcurrentHashMap<String, Callable<Object>> MAIN_CALLS = new ConcurrentHashMap<>();
+
+  private ContextBridge() {
+  }
+
+  //the shell class loader doesn't see application classes, so snippets reach the slots through
+  //a single generated accessor exposing only java.base types
+  static String accessorClassName() {
+    return AccessorHolder.ACCESSOR.getName();
+  }
+
+  static void register(String slotId) {
+    SLOTS.computeIfAbsent(slotId, id -> {
+      var slot = new Slot();
+      CONTEXT_SUPPLIERS.put(id, () -> {
+        slot.trackCurrentThread();
+        return slot.context;
+      });
+      BINDINGS.put(id, name -> {
+        slot.trackCurrentThread();
+        return slot.bindings.get(name);
+      });
+      PRINT_STREAMS.put(id, slot.printStream);
+      return slot;
+    });
+  }
+
+  //output of the slot's current run
+  static PrintStream printStream(String slotId) {
+    var slot = SLOTS.get(slotId);
+    if (slot == null) {
+      throw new IllegalStateException("Slot " + slotId + " is not registered");
+    }
+    return slot.printStream;
+  }
+
+  static Callable<Object> mainCall(String slotId) {
+    return MAIN_CALLS.get(slotId);
+  }
+
+  static void clearMainCall(String slotId) {
+    MAIN_CALLS.remove(slotId);
+  }
+
+  static void bind(String slotId, String context, Map<String, Object> bindings, OutputStream target,
+                   ScriptExecution execution) {
+    var slot = SLOTS.get(slotId);
+    if (slot == null) {
+      throw new IllegalStateException("Slot " + slotId + " is not registered");
+    }
+    slot.context = context;
+    slot.bindings = bindings;
+    slot.target = target;
+    slot.execution = execution;
+  }
+
+  static void unbind(String slotId) {
+    var slot = SLOTS.get(slotId);
+    if (slot != null) {
+      slot.printStream.flush();
+      slot.context = null;
+      slot.bindings = Map.of();
+      slot.target = null;
+      slot.execution = null;
+    }
+  }
+
+  static void remove(String slotId) {
+    CONTEXT_SUPPLIERS.remove(slotId);
+    BINDINGS.remove(slotId);
+    PRINT_STREAMS.remove(slotId);
+    MAIN_CALLS.remove(slotId);
+    SLOTS.remove(slotId);
+  }
+
+  //injection through reflection is closed since JDK 17, a lookup defines the accessor next to the bridge
+  //when the bridge is loaded by the loader of the shell
+  private static final class AccessorHolder {
+    private static final Class<?> ACCESSOR = new ByteBuddy()
+      .subclass(Object.class, NO_CONSTRUCTORS)
+      .modifiers(Visibility.PUBLIC)
+      .name(ContextBridge.class.getName() + "Accessor")
+      .defineMethod("getContextSuppliers", Map.class, Visibility.PUBLIC, Ownership.STATIC)
+      .intercept(FixedValue.reference(CONTEXT_SUPPLIERS))
+      .defineMethod("getBindings", Map.class, Visibility.PUBLIC, Ownership.STATIC)
+      .intercept(FixedValue.reference(BINDINGS))
+      .defineMethod("getPrintStreams", Map.class, Visibility.PUBLIC, Ownership.STATIC)
+      .intercept(FixedValue.reference(PRINT_STREAMS))
+      .defineMethod("getMainCalls", Map.class, Visibility.PUBLIC, Ownership.STATIC)
+      .intercept(FixedValue.reference(MAIN_CALLS))
+      .make()
+      .load(JShell.class.getClassLoader(), loadingStrategy())
+      .getLoaded();
+
+    private static ClassLoadingStrategy<ClassLoader> loadingStrategy() {
+      if (ContextBridge.class.getClassLoader() == JShell.class.getClassLoader()) {
+        return ClassLoadingStrategy.UsingLookup.of(MethodHandles.lookup());
+      }
+      return ClassLoadingStrategy.Default.INJECTION;
+    }
+  }
+
+  private static final class Slot {
+    private final PrintStream printStream = new PrintStream(new SlotOutputStream(this), true, StandardCharsets.UTF_8);
+    private volatile String context;
+    private volatile Map<String, Object> bindings = Map.of();
+    private volatile OutputStream target;
+    private volatile ScriptExecution execution;
+
+    //snippets run on the thread of the local execution control, the execution budget has to count it
+    private void trackCurrentThread() {
+      var execution = this.execution;
+      if (execution != null) {
+        execution.trackThread(Thread.currentThread());
+      }
+    }
+  }
+
+  private static final class SlotOutputStream extends OutputStream {
+    private final Slot slot;
+
+    private SlotOutputStream(Slot slot) {
+      this.slot = slot;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      var target = slot.target;
+      if (target != null) {
+        target.write(b);
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      var target = slot.target;
+      if (target != null) {
+        target.write(b, off, len);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      var target = slot.target;
+      if (target != null) {
+        target.flush();
+      }
+    }
+  }
+}
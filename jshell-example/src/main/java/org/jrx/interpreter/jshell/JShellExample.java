@@ -2,99 +2,371 @@ package org.jrx.interpreter.jshell;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.UUID;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.Executor;
 import java.util.function.Predicate;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.script.ScriptException;
 import jdk.jshell.JShell;
 import jdk.jshell.Snippet;
 import jdk.jshell.SnippetEvent;
+import jdk.jshell.execution.JdiExecutionControlProvider;
 import jdk.jshell.execution.LocalExecutionControlProvider;
-import net.bytebuddy.ByteBuddy;
-import net.bytebuddy.description.modifier.Ownership;
-import net.bytebuddy.description.modifier.Visibility;
-import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
-import net.bytebuddy.implementation.FixedValue;
+import org.jrx.interpreter.core.ExecutionScheduler;
+import org.jrx.interpreter.core.ExecutorMetrics;
+import org.jrx.interpreter.core.Phase;
+import org.jrx.interpreter.core.PreparedScript;
+import org.jrx.interpreter.core.ScriptBindings;
+import org.jrx.interpreter.core.ScriptCache;
+import org.jrx.interpreter.core.ScriptExecution;
+import org.jrx.interpreter.core.ScriptExecutor;
+import org.jrx.interpreter.core.ScriptOutput;
+import org.jrx.interpreter.core.ScriptResult;
+import org.jrx.interpreter.core.ScriptValidator;
+import org.jrx.interpreter.core.StopSwitch;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toSet;
-import static net.bytebuddy.dynamic.scaffold.subclass.ConstructorStrategy.Default.NO_CONSTRUCTORS;
 
-public class JShellExample {
-  private static final AtomicBoolean STOP_EXECUTION_SWITCH = new AtomicBoolean();
-  private static final String PUBLIC_CLASS = "public class";
-  private static final String MAIN_METHOD = "public static void main";
-  private static final Pattern CLASS_NAME = Pattern.compile("class\\s([^\\s]+?)\\s");
+public class JShellExample implements ScriptExecutor {
+  private static final StopSwitch STOP_EXECUTION_SWITCH = new StopSwitch();
+  //the main class is the one declaring main, not the first class of the script
+  private static final ScriptValidator VALIDATOR = ScriptValidator.of(ScriptValidator.Rule.NO_PUBLIC_CLASSES,
+    ScriptValidator.Rule.REQUIRE_MAIN);
+  private static final int DEFAULT_POOL_SIZE = 2;
+  private static final int DEFAULT_MAX_USES_PER_SHELL = 100;
+  private static final String ENGINE_NAME = "jshell";
+  //declarations only: evaluating them again has no effect but a new definition.
+  //statements and variables run their code, so they are evaluated on every run
+  private static final Set<Snippet.Kind> SESSION_KINDS = Set.of(Snippet.Kind.IMPORT, Snippet.Kind.TYPE_DECL, Snippet.Kind.METHOD);
+
+  private final JShellPool shellPool;
+  private final Executor executor;
+  //null runs the scripts inside this JVM
+  private final AgentOptions agentOptions;
+  private final boolean sessions;
+  private final ExecutorMetrics metrics;
+
+  public JShellExample() {
+    this(DEFAULT_POOL_SIZE, DEFAULT_MAX_USES_PER_SHELL);
+  }
+
+  public JShellExample(int poolSize, int maxUsesPerShell) {
+    this(poolSize, maxUsesPerShell, ExecutionScheduler.shared());
+  }
+
+  public JShellExample(int poolSize, int maxUsesPerShell, Executor executor) {
+    this(poolSize, maxUsesPerShell, executor, null);
+  }
+
+  //every pooled shell runs its scripts in its own agent JVM, a crashed or exhausted agent takes only its shell down
+  public JShellExample(int poolSize, int maxUsesPerShell, Executor executor, AgentOptions agentOptions) {
+    this(poolSize, maxUsesPerShell, executor, agentOptions, false);
+  }
+
+  //in the session mode a shell keeps the declarations of the last script it ran: the next run of the same version
+  //evaluates only the main call, a new version only the snippets it changed. Static state of the script classes
+  //survives between the runs of a session
+  public JShellExample(int poolSize, int maxUsesPerShell, Executor executor, AgentOptions agentOptions, boolean sessions) {
+    if (agentOptions != null && agentOptions.getClassDataArchive() != null
+      && !Files.isRegularFile(agentOptions.getClassDataArchive())) {
+      ClassDataArchive.dump(agentOptions.getClassDataArchive(), trainingOptions -> {
+        var vmOptions = new ArrayList<>(agentOptions.vmOptions());
+        vmOptions.addAll(trainingOptions);
+        trainAgent(vmOptions);
+      });
+    }
+    var maxHeapBytes = agentOptions != null ? agentOptions.getRecycleHeapBytes() : Long.MAX_VALUE;
+    this.shellPool = new JShellPool(poolSize, maxUsesPerShell, maxHeapBytes, slotId -> createShell(slotId, agentOptions),
+      slotId -> agentOptions != null ? remoteBootstrapLines() : bootstrapLines(slotId));
+    this.executor = executor;
+    this.agentOptions = agentOptions;
+    this.sessions = sessions;
+    this.metrics = new ExecutorMetrics(ENGINE_NAME)
+      .gauge("shells.idle", shellPool::idle)
+      .gauge("shells.leased", shellPool::leased)
+      .gauge("shells.occupancy", () -> (double) shellPool.leased() / shellPool.size())
+      .gauge("shells.created", shellPool::created)
+      .gauge("shells.retired", shellPool::retired)
+      .gauge("shells.retired.maxUses", () -> shellPool.retired(JShellPool.Retirement.MAX_USES))
+      .gauge("shells.retired.heap", () -> shellPool.retired(JShellPool.Retirement.HEAP))
+      .gauge("shells.retired.broken", () -> shellPool.retired(JShellPool.Retirement.BROKEN))
+      .gauge("shells.retired.surplus", () -> shellPool.retired(JShellPool.Retirement.SURPLUS))
+      .gauge("shells.heapBytes.max", () -> shellPool.shells().stream().mapToLong(JShellPool.PooledShell::heapBytes).max().orElse(0))
+      .gauge("shells.throughput.min", () -> shellPool.shells().stream().filter(shell -> shell.uses() > 0)
+        .mapToDouble(JShellPool.PooledShell::throughput).min().orElse(0))
+      .gauge("shells.inlineCreations", shellPool::inlineCreations)
+      .gauge("shells.sessionHits", shellPool::sessionHits)
+      .runawayGauge()
+      .schedulerGauges(executor);
+  }
 
   public static void main(String[] args) throws URISyntaxException, IOException, ScriptException {
     var scriptPath = Path.of(JShellExample.class.getResource("/WorkingScript.java").toURI());
     var script = Files.readString(scriptPath, StandardCharsets.UTF_8);
-    System.out.println("Custom output: " + new JShellExample().executeScript(script, "external context"));
+    var arguments = List.of(args);
+    var agentOptions = arguments.contains("remote") ? AgentOptions.defaults() : null;
+    var sessions = arguments.contains("session");
+    try (var example = new JShellExample(DEFAULT_POOL_SIZE, DEFAULT_MAX_USES_PER_SHELL, ExecutionScheduler.shared(),
+      agentOptions, sessions)) {
+      System.out.println("Custom output: " + example.executeScript(script, "external context"));
+      if (sessions) {
+        //the same version again: only the main call is evaluated
+        System.out.println("Custom output: " + example.executeScript(script, "another context"));
+        System.out.println(example.getShellPool());
+      }
+    }
   }
 
   public String executeScript(String script, String ctxVariable) throws ScriptException {
-    if (script.contains(PUBLIC_CLASS)) {
-      throw new ScriptException("There must be no public classes");
-    }
-    if (!script.contains(MAIN_METHOD)) {
-      throw new ScriptException("There must be a " + MAIN_METHOD + " method");
+    var output = ScriptOutput.buffered();
+    run(prepare(script), ScriptBindings.of("ctx", ctxVariable), null, output);
+    return collect(output);
+  }
+
+  @Override
+  public String getEngineName() {
+    return ENGINE_NAME;
+  }
+
+  @Override
+  public PreparedScript prepare(String script) throws ScriptException {
+    var startedNanos = System.nanoTime();
+    var hash = ScriptCache.hash(script);
+    //a valid verdict has the main class
+    var scriptMainClassname = VALIDATOR.validate(hash, script).getMainClassName().orElseThrow();
+    metrics.record(Phase.VALIDATION, startedNanos);
+    return new PreparedScript(ENGINE_NAME, script, hash, scriptMainClassname, System.nanoTime() - startedNanos);
+  }
+
+  @Override
+  public ScriptExecution execute(PreparedScript script, ScriptBindings bindings, ScriptOutput output) {
+    try {
+      script.requireEngine(ENGINE_NAME);
+      //objects can't leave the process, an agent gets the ctx as a literal in the snippet
+      if (agentOptions != null) {
+        if (!bindings.asMap().keySet().stream().allMatch("ctx"::equals)) {
+          throw new ScriptException("Remote shells support only ctx binding, got " + bindings);
+        }
+        var ctx = bindings.asMap().get("ctx");
+        if (ctx != null && !(ctx instanceof String)) {
+          throw new ScriptException("Remote shells support only a " + String.class.getName() + " ctx, got "
+            + ctx.getClass().getName());
+        }
+      }
+    } catch (ScriptException | IllegalArgumentException e) {
+      return output.attach(ScriptExecution.failed(script, e));
     }
-    var scriptMainClassname = ofNullable(CLASS_NAME.matcher(script)).filter(Matcher::find).map(matcher -> matcher.group(1))
-      .orElseThrow(() -> new ScriptException(String.join(System.lineSeparator(), "Can not find class name in:", script)));
-    try (var outputStream = new ByteArrayOutputStream();
-         var output = new PrintStream(outputStream, true, StandardCharsets.UTF_8);
-         var shell = createShell(output)
-    ) {
-      var contextClass = generateCtx(ctxVariable, output);
-      var inputLines = List.of(
-        "Class<?> contextClass = jdk.jshell.JShell.class.getClassLoader()"
-          + ".loadClass(\"" + contextClass.getName() + "\");",
-        "var ctx = (String) contextClass.getMethod(\"getContext\").invoke(null);",
-        "var out = (java.io.PrintStream) contextClass.getMethod(\"getPrintStream\").invoke(null);",
-        //doesn't work inside script class
-        "public static void println(Object arg) {\n\tout.println(arg);\n};",
-        script,
+    return output.attach(ScriptExecution.submit(script, executor, execution -> {
+      run(script, bindings, execution, output);
+      return new ScriptResult(collect(output), null);
+    }).stopOn(STOP_EXECUTION_SWITCH));
+  }
+
+  private void run(PreparedScript script, ScriptBindings bindings, ScriptExecution execution, ScriptOutput output)
+    throws ScriptException {
+    var phaseStartedNanos = System.nanoTime();
+    //main takes strings, it gets the text of the ctx. The ctx object itself, like any binding, is reachable by name
+    //with binding("ctx") on a local shell
+    var ctxVariable = Objects.toString(bindings.asMap().get("ctx"), null);
+    var scriptMainClassname = script.getCompiled(ENGINE_NAME, String.class);
+    //a local session registers the main call once per version, the next runs call it without compiling a snippet
+    var directMainCall = sessions && agentOptions == null;
+    var pooledShell = shellPool.acquire(sessions ? script.getHash() : null);
+    var shell = pooledShell.shell();
+    try (var outputStream = output.open(execution)) {
+      //imports evaluated as a part of the class snippet make javac spin on the next eval in the same shell
+      var inputLines = splitToSnippets(shell, script.getSource());
+      if (sessions) {
+        inputLines = changedSnippets(pooledShell, inputLines);
+        //a failed run leaves a part of the version behind
+        pooledShell.session(null);
+      }
 //        to break shell just uncomment and switch to Script.java
-//        scriptMainClassname + ".setCtx(ctx);"
-        scriptMainClassname + ".main(ctx);"
-        );
-
-      shell.onSnippetEvent(event -> {
-        System.out.println("Got event: " + event);
-        if (STOP_EXECUTION_SWITCH.get()) {
-          System.out.println("Trying to stop sh=" + shell);
+//      inputLines.add(scriptMainClassname + ".setCtx(ctx.get());");
+      if (directMainCall) {
+        if (!inputLines.isEmpty() || ContextBridge.mainCall(pooledShell.id()) == null) {
+          //the registered call refers to the classes of the previous version
+          ContextBridge.clearMainCall(pooledShell.id());
+          inputLines.add("mainCalls.put(\"" + pooledShell.id() + "\", () -> {\n\t" + scriptMainClassname
+            + ".main(ctx.get());\n\treturn null;\n});");
+        }
+      } else if (agentOptions == null) {
+        inputLines.add(scriptMainClassname + ".main(ctx.get());");
+      } else {
+        //the agent can't reach the bridge, the context travels in the snippet and the heap comes back as its value
+        inputLines.add("runMain(() -> " + scriptMainClassname + ".main(" + javaLiteral(ctxVariable) + "));");
+      }
+
+      ContextBridge.bind(pooledShell.id(), ctxVariable, bindings.asMap(), outputStream, execution);
+      if (execution != null) {
+        execution.onCancel(shell::stop);
+      }
+      //the switch stops an execution like any other stop, a synchronous run has none and checks the switch itself
+      var subscription = shell.onSnippetEvent(event -> {
+        if (execution != null ? execution.isStopped() : STOP_EXECUTION_SWITCH.isTripped()) {
           shell.stop();
         }
       });
-      shell.onShutdown(sh -> System.out.println("Execution finished. Shutting down, sh=" + sh));
-      System.out.println("Starting execution, sh=" + shell);
-      for (var line : inputLines) {
-        var invalidEvents = getInvalidEvents(shell, shell.eval(line));
-        if (!invalidEvents.isEmpty()) {
-          throw new ScriptException(invalidEvents.stream().map(event -> formatEventToMessage(shell, event, outputStream))
-            .collect(joining(System.lineSeparator())));
+      try {
+        phaseStartedNanos = metrics.record(Phase.CONTEXT_SETUP, phaseStartedNanos);
+        var mainLine = directMainCall ? inputLines.size() : inputLines.size() - 1;
+        for (var i = 0; i < inputLines.size(); i++) {
+          //the snippets before the main call only declare and compile
+          if (i == mainLine) {
+            phaseStartedNanos = metrics.record(Phase.COMPILE, phaseStartedNanos);
+          }
+          var events = shell.eval(inputLines.get(i));
+          var invalidEvents = getInvalidEvents(shell, events);
+          if (!invalidEvents.isEmpty()) {
+            throw new ScriptException(invalidEvents.stream().map(event -> formatEventToMessage(shell, event, output.collected()))
+              .collect(joining(System.lineSeparator())));
+          }
+          if (i == mainLine && agentOptions != null) {
+            recordHeapBytes(pooledShell, events);
+          }
+          if (i != mainLine && sessions) {
+            keepDeclarations(pooledShell, inputLines.get(i), events);
+          }
+        }
+        if (directMainCall) {
+          phaseStartedNanos = metrics.record(Phase.COMPILE, phaseStartedNanos);
+          callMain(pooledShell.id(), scriptMainClassname, output, execution);
+        }
+        if (sessions) {
+          pooledShell.session(script.getHash());
         }
+        metrics.record(Phase.EXECUTION, phaseStartedNanos);
+      } catch (IllegalStateException e) {
+        //e.g. System.exit in a script shuts the agent down, the pool retires the closed shell
+        throw new ScriptException("Shell is closed during the execution: " + e.getMessage());
+      } finally {
+        shell.unsubscribe(subscription);
+        ContextBridge.unbind(pooledShell.id());
       }
-      return outputStream.toString();
     } catch (IOException e) {
       throw new ScriptException(e);
+    } finally {
+      //the classes of a stopped direct call may be left in any state
+      if (directMainCall && execution != null && execution.isStopped()) {
+        shellPool.retire(pooledShell);
+      } else {
+        shellPool.release(pooledShell);
+      }
     }
   }
 
+  private String collect(ScriptOutput output) {
+    var startedNanos = System.nanoTime();
+    var collected = output.collected();
+    metrics.record(Phase.OUTPUT_COLLECTION, startedNanos);
+    return collected;
+  }
+
+  public JShellPool getShellPool() {
+    return shellPool;
+  }
+
+  @Override
+  public ExecutorMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public void close() {
+    metrics.close();
+    shellPool.close();
+  }
+
+  private static List<String> splitToSnippets(JShell shell, String source) {
+    var snippets = new ArrayList<String>();
+    var remaining = source;
+    while (!remaining.isBlank()) {
+      var completionInfo = shell.sourceCodeAnalysis().analyzeCompletion(remaining);
+      if (!completionInfo.completeness().isComplete()) {
+        //let the shell report the diagnostics for the incomplete tail
+        snippets.add(remaining);
+        break;
+      }
+      snippets.add(completionInfo.source());
+      remaining = completionInfo.remaining();
+    }
+    return snippets;
+  }
+
+  //the direct call runs on the thread of the caller, the shell can't stop it. A stop interrupts the thread and retires
+  //the shell, a script which ignores the interrupt keeps the thread until it ends
+  private static void callMain(String slotId, String scriptMainClassname, ScriptOutput output, ScriptExecution execution)
+    throws ScriptException {
+    var mainCall = ContextBridge.mainCall(slotId);
+    try {
+      mainCall.call();
+    } catch (Exception e) {
+      if (execution != null && execution.isStopped()) {
+        throw ScriptExecution.toScriptException(e);
+      }
+      var message = "Failed to execute " + scriptMainClassname + ".main: " + e;
+      var collectedOutput = output.collected().strip();
+      var scriptException = new ScriptException(collectedOutput.isEmpty() ? message
+        : message + System.lineSeparator() + "Collected output: " + System.lineSeparator() + collectedOutput);
+      scriptException.initCause(e);
+      throw scriptException;
+    }
+  }
+
+  //the session declarations with the same source which are still valid stay, the ones the script doesn't have any more
+  //are dropped. Returns the snippets to evaluate, the shell revalidates the dependents of the changed declarations
+  private static List<String> changedSnippets(JShellPool.PooledShell pooledShell, List<String> snippets) {
+    var shell = pooledShell.shell();
+    var sessionSnippets = pooledShell.sessionSnippets();
+    var kept = new HashSet<String>();
+    var changed = new ArrayList<String>();
+    for (var source : snippets) {
+      var snippet = sessionSnippets.get(source);
+      if (snippet != null && shell.status(snippet) == Snippet.Status.VALID) {
+        kept.add(source);
+      } else {
+        changed.add(source);
+      }
+    }
+    var removed = sessionSnippets.entrySet().iterator();
+    while (removed.hasNext()) {
+      var entry = removed.next();
+      if (!kept.contains(entry.getKey())) {
+        if (shell.status(entry.getValue()).isActive()) {
+          shell.drop(entry.getValue());
+        }
+        removed.remove();
+      }
+    }
+    return changed;
+  }
+
+  private static void keepDeclarations(JShellPool.PooledShell pooledShell, String source, List<SnippetEvent> events) {
+    var shell = pooledShell.shell();
+    events.stream()
+      //the other events are the dependents the shell updated
+      .filter(event -> event.causeSnippet() == null)
+      .map(SnippetEvent::snippet)
+      .filter(snippet -> SESSION_KINDS.contains(snippet.kind()) && shell.status(snippet) == Snippet.Status.VALID)
+      .findFirst()
+      .ifPresent(snippet -> pooledShell.sessionSnippets().put(source, snippet));
+  }
+
   private static Set<SnippetEvent> getInvalidEvents(JShell shell, List<SnippetEvent> events) {
     return events.stream()
       .filter(event -> event.exception() != null
@@ -102,17 +374,97 @@ public class JShellExample {
       .collect(toSet());
   }
 
-  private static JShell createShell(PrintStream out) {
+  private static void recordHeapBytes(JShellPool.PooledShell pooledShell, List<SnippetEvent> events) {
+    events.stream().map(SnippetEvent::value).filter(value -> value != null && value.matches("\\d+")).findFirst()
+      .ifPresent(value -> pooledShell.recordHeapBytes(Long.parseLong(value)));
+  }
+
+  //octal escapes, a unicode escape of a line break would break the literal
+  private static String javaLiteral(String value) {
+    if (value == null) {
+      return "(String) null";
+    }
+    var literal = new StringBuilder(value.length() + 2).append('"');
+    for (var c : value.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        literal.append('\\').append(c);
+      } else if (c < ' ') {
+        literal.append(String.format("\\%03o", (int) c));
+      } else {
+        literal.append(c);
+      }
+    }
+    return literal.append('"').toString();
+  }
+
+  private static List<String> bootstrapLines(String slotId) {
+    return List.of(
+      "Class<?> contextClass = jdk.jshell.JShell.class.getClassLoader()"
+        + ".loadClass(\"" + ContextBridge.accessorClassName() + "\");",
+      "var ctx = ((java.util.Map<String, java.util.function.Supplier<String>>) contextClass"
+        + ".getMethod(\"getContextSuppliers\").invoke(null)).get(\"" + slotId + "\");",
+      "var bindings = ((java.util.Map<String, java.util.function.Function<String, Object>>) contextClass"
+        + ".getMethod(\"getBindings\").invoke(null)).get(\"" + slotId + "\");",
+      "@SuppressWarnings(\"unchecked\")\npublic static <T> T binding(String name) {\n\treturn (T) bindings.apply(name);\n};",
+      "var out = ((java.util.Map<String, java.io.PrintStream>) contextClass"
+        + ".getMethod(\"getPrintStreams\").invoke(null)).get(\"" + slotId + "\");",
+      "var mainCalls = (java.util.Map<String, java.util.concurrent.Callable<Object>>) contextClass"
+        + ".getMethod(\"getMainCalls\").invoke(null);",
+      //doesn't work inside script class
+      "public static void println(Object arg) {\n\tout.println(arg);\n};"
+    );
+  }
+
+  //the agent's System.out is forwarded to the shell output
+  private static List<String> remoteBootstrapLines() {
+    return List.of(
+      "var out = System.out;",
+      "public static void println(Object arg) {\n\tout.println(arg);\n};",
+      "interface ScriptMain {\n\tvoid run() throws Exception;\n}",
+      "public static long runMain(ScriptMain main) throws Exception {\n\tmain.run();\n"
+        + "\tvar runtime = Runtime.getRuntime();\n\treturn runtime.totalMemory() - runtime.freeMemory();\n}"
+    );
+  }
+
+  private static JShell.Builder remoteShellBuilder(List<String> vmOptions) {
     return JShell.builder()
-      .executionEngine(new LocalExecutionControlProvider(), Map.of())
-      //doesn't work
-      .out(out)
-      //doesn't work
-      .err(out)
-      .build();
+      .executionEngine(new JdiExecutionControlProvider(), Map.of(JdiExecutionControlProvider.PARAM_LAUNCH, "true"))
+      .remoteVMOptions(vmOptions.toArray(String[]::new));
+  }
+
+  //loads the classes a regular run needs, so that the class list covers them
+  private static void trainAgent(List<String> vmOptions) {
+    var discarded = new PrintStream(OutputStream.nullOutputStream(), true, StandardCharsets.UTF_8);
+    try (var shell = remoteShellBuilder(vmOptions).out(discarded).err(discarded).build()) {
+      remoteBootstrapLines().forEach(shell::eval);
+      shell.eval("class TrainingScript {\n\tpublic static void main(String... args) {\n\t\tprintln(java.util.List.of(args));\n\t}\n}");
+      shell.eval("runMain(() -> TrainingScript.main(\"training\"));");
+    }
   }
 
-  private static String formatEventToMessage(JShell jShell, SnippetEvent invalidEvent, ByteArrayOutputStream out) {
+  private static JShell createShell(String slotId, AgentOptions agentOptions) {
+    ContextBridge.register(slotId);
+    JShell shell;
+    if (agentOptions == null) {
+      shell = JShell.builder()
+        .executionEngine(new LocalExecutionControlProvider(), Map.of())
+        //doesn't work
+        .out(System.out)
+        //doesn't work
+        .err(System.err)
+        .build();
+    } else {
+      //the agent output arrives before the result of the snippet, so the current run gets all of it
+      shell = remoteShellBuilder(agentOptions.vmOptions())
+        .out(ContextBridge.printStream(slotId))
+        .err(ContextBridge.printStream(slotId))
+        .build();
+    }
+    shell.onShutdown(sh -> ContextBridge.remove(slotId));
+    return shell;
+  }
+
+  private static String formatEventToMessage(JShell jShell, SnippetEvent invalidEvent, String collectedOutput) {
     var diagnostics = jShell.diagnostics(invalidEvent.snippet())
       .map(diag -> diag.getMessage(Locale.getDefault()))
       .map(String::strip)
@@ -123,7 +475,7 @@ public class JShellExample {
       Optional.of(diagnostics)
         .filter(Predicate.not(Collection::isEmpty))
         .map(diag -> diag.stream().collect(joining(System.lineSeparator(), "Diagnostic messages: " + System.lineSeparator(), ""))),
-      Optional.of(out.toString()).map(String::strip).filter(Predicate.not(String::isEmpty))
+      Optional.of(collectedOutput).map(String::strip).filter(Predicate.not(String::isEmpty))
         .map(s -> "Collected output: " + System.lineSeparator() + s),
       ofNullable(invalidEvent.exception()).map(ex -> {
         try (var os = new ByteArrayOutputStream();
@@ -138,19 +490,4 @@ public class JShellExample {
     return textParts.stream().filter(Optional::isPresent).map(Optional::get).collect(joining(System.lineSeparator()));
   }
 
-  private static Class<?> generateCtx(String ctx, PrintStream out) {
-    var className = "Ctx_" + UUID.randomUUID().toString().replaceAll("-", "");
-    return new ByteBuddy()
-      .subclass(Object.class, NO_CONSTRUCTORS)
-      .modifiers(Visibility.PUBLIC)
-      .name(className)
-      .defineMethod("getContext", String.class, Visibility.PUBLIC, Ownership.STATIC)
-      .intercept(FixedValue.reference(ctx))
-      .defineMethod("getPrintStream", PrintStream.class, Visibility.PUBLIC, Ownership.STATIC)
-      .intercept(FixedValue.reference(out))
-      .make()
-      .load(JShell.class.getClassLoader(), ClassLoadingStrategy.Default.INJECTION)
-      .getLoaded();
-  }
-
 }
@@ -0,0 +1,335 @@
+package org.jrx.interpreter.jshell;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import jdk.jshell.JShell;
+import jdk.jshell.Snippet;
+import org.jrx.interpreter.core.DaemonThreadFactory;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+public class JShellPool implements AutoCloseable {
+  private static final long UNLIMITED_HEAP = Long.MAX_VALUE;
+
+  private final int size;
+  private final int maxUses;
+  private final long maxHeapBytes;
+  private final Function<String, JShell> shellFactory;
+  private final Function<String, List<String>> bootstrapLines;
+  private final BlockingQueue<PooledShell> idle;
+  private final AtomicInteger pendingRefills = new AtomicInteger();
+  private final AtomicInteger leased = new AtomicInteger();
+  private final AtomicLong shellIds = new AtomicLong();
+  private final ExecutorService refillExecutor;
+  private final LongAdder created = new LongAdder();
+  private final LongAdder[] retired = new LongAdder[Retirement.values().length];
+  private final Set<PooledShell> live = ConcurrentHashMap.newKeySet();
+  private final LongAdder inlineCreations = new LongAdder();
+  private final LongAdder sessionHits = new LongAdder();
+  private volatile boolean closed;
+
+  public JShellPool(int size, int maxUses, Function<String, JShell> shellFactory,
+                    Function<String, List<String>> bootstrapLines) {
+    this(size, maxUses, UNLIMITED_HEAP, shellFactory, bootstrapLines);
+  }
+
+  //a shell which reports more heap than maxHeapBytes after a run is retired, see PooledShell.recordHeapBytes
+  public JShellPool(int size, int maxUses, long maxHeapBytes, Function<String, JShell> shellFactory,
+                    Function<String, List<String>> bootstrapLines) {
+    if (size < 1) {
+      throw new IllegalArgumentException("Pool size must be positive, got " + size);
+    }
+    if (maxUses < 1) {
+      throw new IllegalArgumentException("Max uses per shell must be positive, got " + maxUses);
+    }
+    this.size = size;
+    this.maxUses = maxUses;
+    this.maxHeapBytes = maxHeapBytes;
+    this.shellFactory = shellFactory;
+    this.bootstrapLines = bootstrapLines;
+    this.idle = new LinkedBlockingQueue<>(size);
+    Arrays.setAll(retired, i -> new LongAdder());
+    this.refillExecutor = Executors.newSingleThreadExecutor(new DaemonThreadFactory("jshell-pool-refill"));
+    scheduleRefill();
+  }
+
+  public PooledShell acquire() {
+    return acquire(null);
+  }
+
+  //prefers an idle shell holding the session, e.g. the declarations of the same script version
+  public PooledShell acquire(String session) {
+    if (closed) {
+      throw new IllegalStateException("Pool is closed");
+    }
+    PooledShell shell = null;
+    if (session != null) {
+      for (var candidate : idle) {
+        if (session.equals(candidate.session) && idle.remove(candidate)) {
+          sessionHits.increment();
+          shell = candidate;
+          break;
+        }
+      }
+    }
+    if (shell == null) {
+      shell = idle.poll();
+    }
+    if (shell == null) {
+      //pool is drained: don't wait for the background refill, pay the startup on the caller
+      inlineCreations.increment();
+      shell = create();
+    }
+    leased.incrementAndGet();
+    scheduleRefill();
+    shell.uses++;
+    shell.leasedAtNanos = System.nanoTime();
+    return shell;
+  }
+
+  public void release(PooledShell shell) {
+    leased.decrementAndGet();
+    shell.busyNanos += System.nanoTime() - shell.leasedAtNanos;
+    var retirement = closed ? Retirement.POOL_CLOSED
+      : shell.uses >= maxUses ? Retirement.MAX_USES
+      : shell.heapBytes > maxHeapBytes ? Retirement.HEAP
+      : !shell.reset() ? Retirement.BROKEN
+      : !idle.offer(shell) ? Retirement.SURPLUS
+      : null;
+    if (retirement != null) {
+      retire(shell, retirement);
+      scheduleRefill();
+    }
+  }
+
+  //instead of the release of a leased shell which must not run another script
+  public void retire(PooledShell shell) {
+    leased.decrementAndGet();
+    shell.busyNanos += System.nanoTime() - shell.leasedAtNanos;
+    retire(shell, Retirement.BROKEN);
+    scheduleRefill();
+  }
+
+  private void retire(PooledShell shell, Retirement retirement) {
+    retired[retirement.ordinal()].increment();
+    live.remove(shell);
+    shell.shell.close();
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int maxUses() {
+    return maxUses;
+  }
+
+  public int idle() {
+    return idle.size();
+  }
+
+  public int leased() {
+    return leased.get();
+  }
+
+  public long created() {
+    return created.sum();
+  }
+
+  public long retired() {
+    return Arrays.stream(retired).mapToLong(LongAdder::sum).sum();
+  }
+
+  public long retired(Retirement retirement) {
+    return retired[retirement.ordinal()].sum();
+  }
+
+  //idle and leased shells, including their run statistics
+  public List<PooledShell> shells() {
+    return new ArrayList<>(live);
+  }
+
+  public long inlineCreations() {
+    return inlineCreations.sum();
+  }
+
+  public long sessionHits() {
+    return sessionHits.sum();
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    refillExecutor.shutdownNow();
+    PooledShell shell;
+    while ((shell = idle.poll()) != null) {
+      retire(shell, Retirement.POOL_CLOSED);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "JShellPool{size=" + size + ", idle=" + idle() + ", leased=" + leased() + ", maxUses=" + maxUses
+      + ", maxHeapBytes=" + maxHeapBytes + ", created=" + created()
+      + ", retired=" + retired() + ", inlineCreations=" + inlineCreations() + ", sessionHits=" + sessionHits() + '}';
+  }
+
+  private void scheduleRefill() {
+    while (!closed) {
+      var pending = pendingRefills.get();
+      if (idle.size() + leased.get() + pending >= size) {
+        return;
+      }
+      if (pendingRefills.compareAndSet(pending, pending + 1)) {
+        refillExecutor.execute(() -> {
+          try {
+            var shell = create();
+            if (closed) {
+              retire(shell, Retirement.POOL_CLOSED);
+            } else if (!idle.offer(shell)) {
+              retire(shell, Retirement.SURPLUS);
+            }
+          } finally {
+            pendingRefills.decrementAndGet();
+          }
+        });
+      }
+    }
+  }
+
+  private PooledShell create() {
+    var id = "shell-" + Integer.toHexString(System.identityHashCode(this)) + "-" + shellIds.incrementAndGet();
+    var shell = shellFactory.apply(id);
+    try {
+      for (var line : bootstrapLines.apply(id)) {
+        for (var event : shell.eval(line)) {
+          if (event.exception() != null || shell.status(event.snippet()) != Snippet.Status.VALID) {
+            throw new IllegalStateException("Failed to bootstrap shell with " + line, event.exception());
+          }
+        }
+      }
+    } catch (RuntimeException e) {
+      shell.close();
+      throw e;
+    }
+    created.increment();
+    var pooledShell = new PooledShell(id, shell, shell.snippets().map(Snippet::id).collect(toSet()));
+    live.add(pooledShell);
+    return pooledShell;
+  }
+
+  public enum Retirement {
+    MAX_USES,
+    HEAP,
+    //stopped, closed or terminated by a script
+    BROKEN,
+    //the pool is full, e.g. after an inline creation
+    SURPLUS,
+    POOL_CLOSED
+  }
+
+  public static class PooledShell {
+    private final String id;
+    private final JShell shell;
+    private final Set<String> bootstrapSnippetIds;
+    //snippets kept between the runs by source, used by the leasing thread only
+    private final Map<String, Snippet> sessionSnippets = new HashMap<>();
+    private final long createdAtNanos = System.nanoTime();
+    //written by the leasing thread only, read by the metrics
+    private volatile int uses;
+    private volatile long busyNanos;
+    private volatile long heapBytes;
+    private volatile String session;
+    private long leasedAtNanos;
+
+    private PooledShell(String id, JShell shell, Set<String> bootstrapSnippetIds) {
+      this.id = id;
+      this.shell = shell;
+      this.bootstrapSnippetIds = bootstrapSnippetIds;
+    }
+
+    public String id() {
+      return id;
+    }
+
+    public JShell shell() {
+      return shell;
+    }
+
+    public int uses() {
+      return uses;
+    }
+
+    public long busyNanos() {
+      return busyNanos;
+    }
+
+    public long ageNanos() {
+      return System.nanoTime() - createdAtNanos;
+    }
+
+    //runs per second of leased time
+    public double throughput() {
+      var busy = busyNanos;
+      return busy == 0 ? 0 : uses * 1e9 / busy;
+    }
+
+    public long heapBytes() {
+      return heapBytes;
+    }
+
+    //heap used by the shell's execution side, checked against the limit on release
+    void recordHeapBytes(long heapBytes) {
+      this.heapBytes = heapBytes;
+    }
+
+    public String session() {
+      return session;
+    }
+
+    //the snippets survive the reset, the session names what they belong to
+    void session(String session) {
+      this.session = session;
+    }
+
+    Map<String, Snippet> sessionSnippets() {
+      return sessionSnippets;
+    }
+
+    @Override
+    public String toString() {
+      return "PooledShell{id=" + id + ", uses=" + uses + ", throughput=" + String.format("%.1f", throughput())
+        + ", heapBytes=" + heapBytes + ", ageMillis=" + ageNanos() / 1_000_000 + ", session=" + session
+        + ", sessionSnippets=" + sessionSnippets.size() + '}';
+    }
+
+    private boolean reset() {
+      try {
+        var kept = Set.copyOf(sessionSnippets.values());
+        shell.snippets()
+          .filter(snippet -> !bootstrapSnippetIds.contains(snippet.id()))
+          .filter(snippet -> !kept.contains(snippet))
+          .filter(snippet -> shell.status(snippet).isActive())
+          .collect(toList())
+          .forEach(shell::drop);
+        return true;
+      } catch (IllegalStateException e) {
+        //shell was stopped or closed while running a script
+        return false;
+      }
+    }
+  }
+}
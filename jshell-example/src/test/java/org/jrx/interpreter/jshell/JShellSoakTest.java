@@ -0,0 +1,78 @@
+package org.jrx.interpreter.jshell;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.util.concurrent.TimeUnit;
+import javax.script.ScriptException;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//the runs of a long living node must not leave classes behind. A jshell run takes milliseconds, the default is a short
+//soak, -Djshell.soak.runs=100000 runs the full one
+class JShellSoakTest {
+  private static final int RUNS = Integer.getInteger("jshell.soak.runs", 1_000);
+  private static final int WARMUP_RUNS = 100;
+  private static final int POOL_SIZE = 2;
+  private static final int MAX_USES_PER_SHELL = 50;
+  //the classes of the live shells and whatever the jdk loads lazily, a class per run would be RUNS more
+  private static final int MAX_CLASS_GROWTH = 200;
+  private static final long MAX_METASPACE_GROWTH_BYTES = 8 * 1024 * 1024;
+
+  private static final String SCRIPT = "class SoakScript {\n"
+    + "  public static void main(String... args) {\n"
+    + "    println(\"main, ctx=\" + args[0]);\n"
+    + "  }\n"
+    + "}\n";
+
+  @Test
+  void loadedClassesAndMetaspaceStayFlat() throws ScriptException {
+    try (var example = new JShellExample(POOL_SIZE, MAX_USES_PER_SHELL)) {
+      run(example, 0, WARMUP_RUNS);
+      var classesBefore = loadedClassesAfterGc();
+      var metaspaceBefore = metaspaceBytes();
+      run(example, WARMUP_RUNS, RUNS);
+      var classesAfter = loadedClassesAfterGc();
+      var metaspaceAfter = metaspaceBytes();
+
+      assertTrue(classesAfter - classesBefore < MAX_CLASS_GROWTH,
+        "Loaded classes grew from " + classesBefore + " to " + classesAfter + " in " + RUNS + " runs");
+      assertTrue(metaspaceAfter - metaspaceBefore < MAX_METASPACE_GROWTH_BYTES,
+        "Metaspace grew from " + metaspaceBefore + " to " + metaspaceAfter + " bytes in " + RUNS + " runs");
+    }
+  }
+
+  private static void run(JShellExample example, int first, int runs) throws ScriptException {
+    for (var run = first; run < first + runs; run++) {
+      var output = example.executeScript(SCRIPT, "run " + run);
+      assertEquals("main, ctx=run " + run, output.lines().findFirst().orElse(""));
+    }
+  }
+
+  //classes of the retired shells go with their class loaders, it may take a few collections
+  private static long loadedClassesAfterGc() {
+    var classLoading = ManagementFactory.getClassLoadingMXBean();
+    var loaded = Long.MAX_VALUE;
+    for (var i = 0; i < 5; i++) {
+      System.gc();
+      sleep();
+      loaded = Math.min(loaded, classLoading.getLoadedClassCount());
+    }
+    return loaded;
+  }
+
+  private static long metaspaceBytes() {
+    return ManagementFactory.getMemoryPoolMXBeans().stream()
+      .filter(pool -> pool.getType() == MemoryType.NON_HEAP && pool.getName().equals("Metaspace"))
+      .mapToLong(pool -> pool.getUsage().getUsed())
+      .sum();
+  }
+
+  private static void sleep() {
+    try {
+      TimeUnit.MILLISECONDS.sleep(100);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
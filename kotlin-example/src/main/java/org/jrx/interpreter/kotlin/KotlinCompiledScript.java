@@ -0,0 +1,68 @@
+package org.jrx.interpreter.kotlin;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+//a script class defined once, every run is a new instance: the constructor takes the implicit receiver
+//and the typed bindings and executes the script body. No engine instance owns it, any thread runs it
+public final class KotlinCompiledScript extends CompiledScript {
+  private final Constructor<?> constructor;
+  private final Map<String, Class<?>> typedBindings;
+  private final Field resultField;
+
+  KotlinCompiledScript(Class<?> scriptClass, Map<String, Class<?>> typedBindings, String resultFieldName)
+    throws NoSuchMethodException, NoSuchFieldException {
+    var parameterTypes = new Class<?>[typedBindings.size() + 1];
+    parameterTypes[0] = KotlinScriptScope.class;
+    var i = 1;
+    for (var type : typedBindings.values()) {
+      parameterTypes[i++] = type;
+    }
+    this.constructor = scriptClass.getConstructor(parameterTypes);
+    this.typedBindings = typedBindings;
+    this.resultField = resultFieldName != null ? scriptClass.getField(resultFieldName) : null;
+  }
+
+  @Override
+  public Object eval(ScriptContext context) throws ScriptException {
+    var bindings = context.getBindings(ScriptContext.ENGINE_SCOPE);
+    var arguments = new Object[typedBindings.size() + 1];
+    arguments[0] = new KotlinScriptScope(context);
+    var i = 1;
+    for (var typedBinding : typedBindings.entrySet()) {
+      var value = bindings.get(typedBinding.getKey());
+      //kotlin trusts the declared type, a mismatch would fail somewhere inside the script
+      if (value == null || !typedBinding.getValue().isInstance(value)) {
+        throw new ScriptException("Binding " + typedBinding.getKey() + " must be a "
+          + typedBinding.getValue().getName() + ", got " + (value == null ? "null" : value.getClass().getName()));
+      }
+      arguments[i++] = value;
+    }
+    try {
+      var script = constructor.newInstance(arguments);
+      return resultField != null ? resultField.get(script) : null;
+    } catch (InvocationTargetException e) {
+      var scriptException = new ScriptException(e.getCause().toString());
+      scriptException.initCause(e.getCause());
+      throw scriptException;
+    } catch (InstantiationException | IllegalAccessException e) {
+      throw new IllegalStateException("Compiled script can't be instantiated", e);
+    }
+  }
+
+  Class<?> getScriptClass() {
+    return constructor.getDeclaringClass();
+  }
+
+  //not bound to an engine instance
+  @Override
+  public ScriptEngine getEngine() {
+    return null;
+  }
+}
@@ -0,0 +1,229 @@
+package org.jrx.interpreter.kotlin;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.script.ScriptException;
+import kotlin.Pair;
+import kotlin.jvm.JvmClassMappingKt;
+import kotlin.reflect.KType;
+import kotlin.reflect.full.KClassifiers;
+import kotlin.script.templates.standard.SimpleScriptTemplate;
+import org.jetbrains.kotlin.cli.common.messages.MessageCollector;
+import org.jetbrains.kotlin.cli.common.repl.ReplCodeLine;
+import org.jetbrains.kotlin.cli.common.repl.ReplCompileResult;
+import org.jetbrains.kotlin.cli.common.repl.ReplUtilKt;
+import org.jetbrains.kotlin.cli.jvm.config.JvmContentRootsKt;
+import org.jetbrains.kotlin.com.intellij.openapi.Disposable;
+import org.jetbrains.kotlin.com.intellij.openapi.util.Disposer;
+import org.jetbrains.kotlin.compiler.plugin.ComponentRegistrar;
+import org.jetbrains.kotlin.config.CommonConfigurationKeys;
+import org.jetbrains.kotlin.config.CompilerConfiguration;
+import org.jetbrains.kotlin.script.util.ContextKt;
+import org.jetbrains.kotlin.scripting.compiler.plugin.ScriptingCompilerConfigurationComponentRegistrar;
+import org.jetbrains.kotlin.scripting.definitions.KotlinScriptDefinition;
+import org.jetbrains.kotlin.scripting.repl.GenericReplCompiler;
+import org.jetbrains.kotlin.utils.PathUtil;
+import org.jrx.interpreter.core.BytecodeClassLoader;
+
+//one Kotlin compiler for all the scripts of the process. The compiler environment with the indexed jdk and classpath
+//is created once, every script is compiled as the first line of a fresh repl state, so it depends on no other script.
+//the environment is not thread-safe, compilations take turns
+public final class KotlinCompilerHost implements AutoCloseable {
+  private static final int LINE_NUMBER = 0;
+  private static final String SOURCE_FILE = "script.kts";
+  private static final String CLASS_FILE_EXTENSION = ".class";
+
+  private final Map<String, Class<?>> typedBindings;
+  private final Disposable disposable = Disposer.newDisposable();
+  private final GenericReplCompiler compiler;
+  //a measurement is a full collection, only a host created for the footprint report pays for it
+  private final boolean measureFootprint;
+  private final MemoryFootprint baseline;
+  private final MemoryFootprint environment;
+  private final long environmentNanos;
+  //the compiler backend loads on the first compilation
+  private volatile MemoryFootprint firstCompilation;
+  private final AtomicLong compiledScripts = new AtomicLong();
+  private final AtomicLong compiledBytes = new AtomicLong();
+
+  //typed bindings are script properties of the declared type, in the order of the map
+  public KotlinCompilerHost(Map<String, Class<?>> typedBindings) {
+    this(typedBindings, false);
+  }
+
+  public KotlinCompilerHost(Map<String, Class<?>> typedBindings, boolean measureFootprint) {
+    this(typedBindings, ContextKt.scriptCompilationClasspathFromContext(new String[0],
+      KotlinCompilerHost.class.getClassLoader(), true), measureFootprint);
+  }
+
+  public KotlinCompilerHost(Map<String, Class<?>> typedBindings, List<File> classpath) {
+    this(typedBindings, classpath, false);
+  }
+
+  //measureFootprint is for reports and benchmarks: the environment and the first compilation are measured
+  //after a full collection each
+  public KotlinCompilerHost(Map<String, Class<?>> typedBindings, List<File> classpath, boolean measureFootprint) {
+    this.typedBindings = Collections.unmodifiableMap(new LinkedHashMap<>(typedBindings));
+    this.measureFootprint = measureFootprint;
+    baseline = measureFootprint ? MemoryFootprint.measure() : null;
+    var startedNanos = System.nanoTime();
+    compiler = new GenericReplCompiler(disposable, scriptDefinition(this.typedBindings),
+      compilerConfiguration(classpath), MessageCollector.Companion.getNONE());
+    environmentNanos = System.nanoTime() - startedNanos;
+    environment = measureFootprint ? MemoryFootprint.measure() : null;
+  }
+
+  public static KotlinCompilerHost shared() {
+    return SharedHolder.SHARED;
+  }
+
+  public KotlinCompiledScript compile(String source) throws ScriptException {
+    ReplCompileResult result;
+    synchronized (this) {
+      try {
+        result = compiler.compile(compiler.createState(new ReentrantReadWriteLock()),
+          new ReplCodeLine(LINE_NUMBER, 0, source));
+      } catch (RuntimeException e) {
+        //code generation failures are thrown, not reported
+        var scriptException = new ScriptException("Kotlin compiler failed: " + e.getMessage());
+        scriptException.initCause(e);
+        throw scriptException;
+      }
+    }
+    //outside of the lock, the other compilations don't wait for the collection. A race measures twice, either will do
+    if (measureFootprint && firstCompilation == null) {
+      firstCompilation = MemoryFootprint.measure();
+    }
+    if (result instanceof ReplCompileResult.Error) {
+      var error = (ReplCompileResult.Error) result;
+      var location = error.getLocation();
+      if (location == null) {
+        throw new ScriptException(error.getMessage());
+      }
+      throw new ScriptException(error.getMessage(), SOURCE_FILE, location.getLine(), location.getColumn());
+    }
+    if (!(result instanceof ReplCompileResult.CompiledClasses)) {
+      throw new ScriptException("Incomplete script, the source ends inside a declaration or an expression");
+    }
+    var compiled = (ReplCompileResult.CompiledClasses) result;
+    var classFiles = new HashMap<String, ByteBuffer>();
+    var bytes = 0L;
+    for (var classData : compiled.getClasses()) {
+      var path = classData.getPath();
+      //module metadata is only read by the compiler
+      if (path.endsWith(CLASS_FILE_EXTENSION)) {
+        var className = path.substring(0, path.length() - CLASS_FILE_EXTENSION.length()).replace('/', '.');
+        classFiles.put(className, ByteBuffer.wrap(classData.getBytes()));
+        bytes += classData.getBytes().length;
+      }
+    }
+    compiledScripts.incrementAndGet();
+    compiledBytes.addAndGet(bytes);
+    var classLoader = new BytecodeClassLoader(KotlinCompilerHost.class.getClassLoader(), classFiles);
+    try {
+      return new KotlinCompiledScript(classLoader.loadClass(compiled.getMainClassName()), typedBindings,
+        compiled.getHasResult() ? ReplUtilKt.scriptResultFieldName(LINE_NUMBER) : null);
+    } catch (ClassNotFoundException | NoSuchMethodException | NoSuchFieldException e) {
+      var scriptException = new ScriptException("Compiled script can't be loaded: " + e);
+      scriptException.initCause(e);
+      throw scriptException;
+    }
+  }
+
+  public Map<String, Class<?>> getTypedBindings() {
+    return typedBindings;
+  }
+
+  public long compiledScripts() {
+    return compiledScripts.get();
+  }
+
+  public long compiledBytes() {
+    return compiledBytes.get();
+  }
+
+  public boolean isMeasuringFootprint() {
+    return measureFootprint;
+  }
+
+  //what the compiler environment takes on top of the process it is started in, measured once on creation
+  public MemoryFootprint environmentFootprint() {
+    if (!measureFootprint) {
+      throw new IllegalStateException("Footprint is not measured, the host must be created with measureFootprint");
+    }
+    return environment.minus(baseline);
+  }
+
+  //for sizing a container: the environment and the first compilation are a fixed cost,
+  //every cached script adds its classes and metaspace on top of it. Without measureFootprint only the process now
+  public String footprintReport() {
+    var current = MemoryFootprint.measure();
+    var report = new StringBuilder("Kotlin compiler host:").append(System.lineSeparator());
+    if (measureFootprint) {
+      report.append("  before the environment: ").append(baseline).append(System.lineSeparator())
+        .append("  environment: ").append(environmentFootprint());
+    } else {
+      report.append("  environment: not measured");
+    }
+    report.append(", created in ").append(environmentNanos / 1_000_000).append("ms").append(System.lineSeparator());
+    var first = firstCompilation;
+    if (first != null) {
+      report.append("  first compilation: ").append(first.minus(environment)).append(System.lineSeparator())
+        .append("  ").append(compiledScripts() - 1).append(" more scripts: ").append(current.minus(first))
+        .append(System.lineSeparator());
+    }
+    return report.append("  bytecode: ").append(compiledBytes() / 1024).append("KB of ").append(compiledScripts())
+      .append(" scripts").append(System.lineSeparator())
+      .append("  process now: ").append(current).toString();
+  }
+
+  @Override
+  public void close() {
+    Disposer.dispose(disposable);
+  }
+
+  private static KotlinScriptDefinition scriptDefinition(Map<String, Class<?>> typedBindings) {
+    var implicitReceivers = List.of(type(KotlinScriptScope.class));
+    var providedProperties = new ArrayList<Pair<String, KType>>();
+    typedBindings.forEach((name, type) -> providedProperties.add(new Pair<>(name, type(type))));
+    return new KotlinScriptDefinition(JvmClassMappingKt.getKotlinClass(SimpleScriptTemplate.class)) {
+      @Override
+      public List<KType> getImplicitReceivers() {
+        return implicitReceivers;
+      }
+
+      @Override
+      public List<Pair<String, KType>> getProvidedProperties() {
+        return providedProperties;
+      }
+    };
+  }
+
+  //the same settings as the jsr-223 engine of kotlin-script-util
+  private static CompilerConfiguration compilerConfiguration(List<File> classpath) {
+    var configuration = new CompilerConfiguration();
+    JvmContentRootsKt.addJvmSdkRoots(configuration, PathUtil.getJdkClassesRootsFromCurrentJre());
+    JvmContentRootsKt.addJvmClasspathRoots(configuration, classpath);
+    configuration.add(ComponentRegistrar.Companion.getPLUGIN_COMPONENT_REGISTRARS(),
+      new ScriptingCompilerConfigurationComponentRegistrar());
+    configuration.put(CommonConfigurationKeys.MODULE_NAME, "kotlin-script");
+    return configuration;
+  }
+
+  private static KType type(Class<?> type) {
+    return KClassifiers.getStarProjectedType(JvmClassMappingKt.getKotlinClass(type));
+  }
+
+  private static final class SharedHolder {
+    //the ctx may be of any type, e.g. a ByteBuffer, a script casts it to what it expects
+    private static final KotlinCompilerHost SHARED = new KotlinCompilerHost(Map.of("ctx", Object.class));
+  }
+}
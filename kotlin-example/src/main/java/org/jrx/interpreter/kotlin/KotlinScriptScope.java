@@ -0,0 +1,52 @@
+package org.jrx.interpreter.kotlin;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Map;
+import javax.script.ScriptContext;
+
+//the implicit receiver of a compiled Kotlin script: its members take precedence over kotlin.io,
+//so print and println write to the output of the run instead of System.out
+public final class KotlinScriptScope {
+  private final ScriptContext context;
+
+  KotlinScriptScope(ScriptContext context) {
+    this.context = context;
+  }
+
+  //all the bindings of the run, the typed ones are script properties as well
+  public Map<String, Object> getBindings() {
+    return context.getBindings(ScriptContext.ENGINE_SCOPE);
+  }
+
+  //any binding by reference, e.g. binding("payload", java.nio.ByteBuffer::class.java)
+  public <T> T binding(String name, Class<T> type) {
+    var value = context.getAttribute(name, ScriptContext.ENGINE_SCOPE);
+    if (value != null && !type.isInstance(value)) {
+      throw new IllegalArgumentException("Binding " + name + " is " + value.getClass().getName() + ", not " + type.getName());
+    }
+    return type.cast(value);
+  }
+
+  public void print(Object message) {
+    write(String.valueOf(message));
+  }
+
+  public void println(Object message) {
+    write(message + System.lineSeparator());
+  }
+
+  public void println() {
+    write(System.lineSeparator());
+  }
+
+  private void write(String text) {
+    Writer writer = context.getWriter();
+    try {
+      writer.write(text);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package org.jrx.interpreter.kotlin;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+
+//live heap, non-heap (metaspace, compressed class space, code cache) and loaded classes of the process.
+//measured after a full collection, so the heap is what stays reachable, not the garbage of the last run
+public final class MemoryFootprint {
+  private static final long MB = 1024 * 1024;
+
+  private final long heapBytes;
+  private final long nonHeapBytes;
+  private final long loadedClasses;
+
+  private MemoryFootprint(long heapBytes, long nonHeapBytes, long loadedClasses) {
+    this.heapBytes = heapBytes;
+    this.nonHeapBytes = nonHeapBytes;
+    this.loadedClasses = loadedClasses;
+  }
+
+  public static MemoryFootprint measure() {
+    System.gc();
+    var heapBytes = 0L;
+    var nonHeapBytes = 0L;
+    for (var pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      var used = pool.getUsage().getUsed();
+      if (pool.getType() == MemoryType.HEAP) {
+        heapBytes += used;
+      } else {
+        nonHeapBytes += used;
+      }
+    }
+    return new MemoryFootprint(heapBytes, nonHeapBytes, ManagementFactory.getClassLoadingMXBean().getLoadedClassCount());
+  }
+
+  public MemoryFootprint minus(MemoryFootprint other) {
+    return new MemoryFootprint(heapBytes - other.heapBytes, nonHeapBytes - other.nonHeapBytes,
+      loadedClasses - other.loadedClasses);
+  }
+
+  public long getHeapBytes() {
+    return heapBytes;
+  }
+
+  public long getNonHeapBytes() {
+    return nonHeapBytes;
+  }
+
+  public long getLoadedClasses() {
+    return loadedClasses;
+  }
+
+  @Override
+  public String toString() {
+    return "heap=" + heapBytes / MB + "MB, nonHeap=" + nonHeapBytes / MB + "MB, classes=" + loadedClasses;
+  }
+}
@@ -1,2 +1,2 @@
-//println(ctx) //requires context which doesn't work
+println(ctx)
 println("arg")
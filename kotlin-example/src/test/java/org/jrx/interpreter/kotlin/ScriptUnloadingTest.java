@@ -0,0 +1,48 @@
+package org.jrx.interpreter.kotlin;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.TimeUnit;
+import javax.script.CompiledScript;
+import javax.script.ScriptException;
+import org.jrx.interpreter.core.ExecutionScheduler;
+import org.jrx.interpreter.core.ScriptBindings;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+//a compiled script class is defined in a loader of its own, nothing but the cache may keep it loaded
+class ScriptUnloadingTest {
+  private static final int GC_ATTEMPTS = 20;
+
+  @Test
+  void evictedScriptClassIsUnloaded() throws ScriptException, InterruptedException {
+    try (var scheduler = new ExecutionScheduler(1);
+         var example = new KotlinInterpreterExample(scheduler)
+    ) {
+      var scriptClass = compile(example, "println(\"$ctx!\")");
+      collect(scriptClass);
+      assertNotNull(scriptClass.get(), "Cached script class is collected while still in use");
+
+      example.getCompiledScripts().clear();
+      collect(scriptClass);
+      assertNull(scriptClass.get(), "Evicted script class is still reachable");
+    }
+  }
+
+  //the reference is taken in a frame of its own, nothing in the test method keeps the script reachable
+  private static WeakReference<Class<?>> compile(KotlinInterpreterExample example, String script) throws ScriptException {
+    var prepared = example.prepare(script);
+    assertEquals("kotlin!", example.execute(prepared, ScriptBindings.of("ctx", "kotlin")).await().getOutput().trim());
+    var compiled = (KotlinCompiledScript) prepared.getCompiled(example.getEngineName(), CompiledScript.class);
+    return new WeakReference<>(compiled.getScriptClass());
+  }
+
+  //a single gc may leave a class loader for the next cycle
+  private static void collect(WeakReference<?> reference) throws InterruptedException {
+    for (var i = 0; i < GC_ATTEMPTS && reference.get() != null; i++) {
+      System.gc();
+      TimeUnit.MILLISECONDS.sleep(50);
+    }
+  }
+}